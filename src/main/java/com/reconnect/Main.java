@@ -1,85 +1,102 @@
 package com.reconnect;
 
-import com.reconnect.domain.Product;
+import com.reconnect.config.AppConfig;
+import com.reconnect.service.AlertService;
+import com.reconnect.service.AliExpressScraperPool;
+import com.reconnect.service.CronSchedule;
+import com.reconnect.service.EmbeddedPriceExtractor;
+import com.reconnect.service.HostRateLimiter;
+import com.reconnect.service.HttpService;
+import com.reconnect.service.MetricsService;
+import com.reconnect.service.PriceCache;
+import com.reconnect.service.PriceChangeDetector;
+import com.reconnect.service.PriceHistoryStore;
+import com.reconnect.service.PriceUpdateDaemon;
+import com.reconnect.service.PriceUpdateService;
+import com.reconnect.service.ProductScheduler;
 import com.reconnect.service.ProductService;
-import com.reconnect.service.AliExpressPriceService;
-import com.reconnect.service.SmsService;
+import com.reconnect.service.ShardCoordinator;
 import lombok.extern.slf4j.Slf4j;
 
-import java.math.BigDecimal;
-import java.util.List;
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class Main {
     public static void main(String[] args) throws InterruptedException {
+        AppConfig config = AppConfig.getInstance();
+        boolean daemonMode = config.isDaemonEnabled() || Arrays.asList(args).contains("--daemon");
+
+        if (config.getMetricsPort() > 0) {
+            MetricsService.getInstance().startServer(config.getMetricsBindAddress(), config.getMetricsPort());
+        }
+
         ProductService productService = new ProductService();
-        AliExpressPriceService aliexpressPriceService = new AliExpressPriceService();
+        HostRateLimiter rateLimiter = new HostRateLimiter();
+        EmbeddedPriceExtractor embeddedPriceExtractor = new EmbeddedPriceExtractor(new HttpService());
+        AliExpressScraperPool scraperPool = new AliExpressScraperPool(
+            config.getScraperConcurrency(),
+            rateLimiter,
+            embeddedPriceExtractor
+        );
 
-        try {
-            List<Product> products = productService.getAllProducts();
-            
-            for (Product product : products) {
-                try {
-                    String link = productService.getProductLink(product);
-                    log.info("Processing product: {}", product);
-                    
-                    Optional<BigDecimal> price = Optional.empty();
-                    int retries = 0;
-                    int maxRetries = 3;
-                    
-                    while (price.isEmpty() && retries < maxRetries) {
-                        try {
-                            price = aliexpressPriceService.getPriceFromUrl(link);
-                            if (price.isEmpty()) {
-                                retries++;
+        PriceCache priceCache = new PriceCache();
+        PriceHistoryStore priceHistory = PriceHistoryStore.fromConfig();
+        ProductScheduler productScheduler = new ProductScheduler(priceHistory);
+        ShardCoordinator shardCoordinator = ShardCoordinator.fromConfig();
+        AlertService alertService = AlertService.fromConfig();
+
+        PriceUpdateService priceUpdateService = new PriceUpdateService(
+            productService,
+            scraperPool,
+            embeddedPriceExtractor,
+            priceCache,
+            new PriceChangeDetector(priceHistory),
+            rateLimiter,
+            productScheduler,
+            shardCoordinator,
+            alertService
+        );
+        PriceUpdateDaemon daemon = daemonMode
+            ? new PriceUpdateDaemon(priceUpdateService, CronSchedule.parse(config.getDaemonSchedule()))
+            : null;
 
-                                if (retries < maxRetries) {
-                                    log.info("Retry {} of {} for product {}", 
-                                        retries, maxRetries, product.getId());
-                                    Thread.sleep(5000);
-                                }
-                            }
-                        } catch (Exception e) {
-                            log.error("Error on attempt {} for product {}: {}", 
-                                retries + 1, product.getId(), e.getMessage());
-                            retries++;
-                            if (retries < maxRetries) {
-                                Thread.sleep(5000);
-                            }
-                        }
-                    }
-                    
-                    price.ifPresentOrElse(
-                        p -> {
-                            BigDecimal priceInCents = p.multiply(new BigDecimal("100"));
-                            long priceInCentsLong = priceInCents.longValue();
-                            
-                            log.info("AliExpress price for product {} in cents: {}", 
-                                product.getId(), priceInCentsLong);
-                                
-                            productService.updateProductPrice(
-                                product.getId(),
-                                product.getLink(),
-                                priceInCentsLong
-                            );
-                        },
-                        () -> log.error("Failed to fetch price for product {} after {} attempts", 
-                            product.getId(), maxRetries)
-                    );
-                    
-                    Thread.sleep(5000);
-                } catch (Throwable e) {
-                    String failTextMessage = "DALE BURRO ELTON, O PROCESSO DE BUSCAR PRECOS FALHOU VISSE, BOM DAR UMA OLHADA";
-                    SmsService.sendSms("5581988189893", failTextMessage);
-                    SmsService.sendSms("5581997417562", failTextMessage);
-                    log.error("Error processing product {}: {}", product.getId(), e.getMessage());
+        CountDownLatch closed = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.info("Shutdown requested, draining in-flight products");
+            if (daemon != null) {
+                daemon.stop();
+            } else {
+                priceUpdateService.requestStop();
+            }
+            try {
+                if (!closed.await(config.getDaemonDrainTimeoutSeconds(), TimeUnit.SECONDS)) {
+                    log.error("Drain did not finish within {} seconds", config.getDaemonDrainTimeoutSeconds());
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "shutdown-drain"));
+
+        try {
+            if (daemon != null) {
+                daemon.run();
+            } else {
+                priceUpdateService.run();
             }
         } catch (Throwable e) {
             log.error("Error in main: {}", e.getMessage(), e);
         } finally {
-            aliexpressPriceService.close();
+            priceCache.close();
+            priceHistory.close();
+            scraperPool.close();
+            if (shardCoordinator != null) {
+                shardCoordinator.close();
+            }
+            alertService.close();
+            MetricsService.getInstance().stopServer();
+            closed.countDown();
         }
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,8 @@ package com.reconnect.config;
 
 import lombok.Getter;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 @Getter
@@ -11,6 +13,80 @@ public class AppConfig {
     private final String captchaApiKey;
     private final String vonageApiKey;
     private final String vonageApiSecret;
+    private final int productsPageSize;
+    private final boolean catalogSnapshotEnabled;
+    private final String catalogSnapshotFile;
+    private final String catalogUpdatedSinceParam;
+    private final long catalogFullRefreshHours;
+    private final int writeBatchSize;
+    private final long writeFlushIntervalMillis;
+    private final int writeBufferCapacity;
+    private final boolean bulkWriteEnabled;
+    private final int writeConcurrency;
+    private final int scraperConcurrency;
+    private final int pipelineIngestionQueueCapacity;
+    private final int pipelineSchedulingConcurrency;
+    private final int pipelineExtractionConcurrency;
+    private final int pipelineExtractionQueueCapacity;
+    private final int metricsPort;
+    private final String metricsBindAddress;
+    private final boolean daemonEnabled;
+    private final String daemonSchedule;
+    private final long daemonDrainTimeoutSeconds;
+    private final boolean schedulerPrioritize;
+    private final double schedulerVolatilityWeight;
+    private final String priceHistoryDirectory;
+    private final long priceHistorySegmentMb;
+    private final int priceHistoryCompactSegments;
+    private final long priceHistoryRetentionDays;
+    private final double priceAnomalyFactor;
+    private final int priceAnomalyConfirmations;
+    private final int runMaxProducts;
+    private final long runTimeBudgetMinutes;
+    private final boolean requestBlockingEnabled;
+    private final List<String> blockedResourceTypes;
+    private final List<String> blockedUrlPatterns;
+    private final List<String> allowedUrlPatterns;
+    private final boolean fastPathEnabled;
+    private final double rateLimitInitialPerMinute;
+    private final double rateLimitMinPerMinute;
+    private final double rateLimitMaxPerMinute;
+    private final double rateLimitIncreasePerMinute;
+    private final double rateLimitDecreaseFactor;
+    private final long retryBackoffBaseMillis;
+    private final long retryBackoffMaxMillis;
+    private final long humanPauseMillis;
+    private final long priceWaitTimeoutMillis;
+    private final List<String> priceSelectors;
+    private final int priceSelectorStaleAfterMisses;
+    private final boolean priceCacheEnabled;
+    private final String priceCacheFile;
+    private final long priceCacheTtlMinutes;
+    private final int priceCacheMaxEntries;
+    private final String journalFile;
+    private final long journalFsyncIntervalMillis;
+    private final long minPriceChangeCents;
+    private final double minPriceChangePercent;
+    private final long maxUnchangedPriceAgeHours;
+    private final int httpMaxConcurrentRequests;
+    private final long httpTimeoutMillis;
+    private final int httpMaxRetries;
+    private final int writeMaxRetries;
+    private final int browserRecyclePages;
+    private final long browserRecycleMemoryMb;
+    private final String priceLocale;
+    private final long priceMinCents;
+    private final long priceMaxCents;
+    private final String alertSink;
+    private final List<String> alertSmsRecipients;
+    private final long alertWindowSeconds;
+    private final long alertDedupMinutes;
+    private final int alertMaxPerHour;
+    private final boolean shardEnabled;
+    private final String shardDirectory;
+    private final String shardWorkerId;
+    private final long shardLeaseSeconds;
+    private final int shardVirtualNodes;
 
     private AppConfig() {
         Properties props = new Properties();
@@ -19,10 +95,98 @@ public class AppConfig {
         } catch (IOException e) {
             throw new RuntimeException("Failed to load application.properties", e);
         }
+        // -Dkey=value wins over the file, so a run can be pointed elsewhere without editing it
+        System.getProperties().stringPropertyNames()
+                .forEach(name -> props.setProperty(name, System.getProperty(name)));
         this.apiBaseUrl = props.getProperty("api.base.url", "http://localhost:8080").trim();
         this.captchaApiKey = props.getProperty("captcha.api.key").trim();
         this.vonageApiKey = props.getProperty("vonage.api.key").trim();
         this.vonageApiSecret = props.getProperty("vonage.api.secret").trim();
+        this.productsPageSize = Integer.parseInt(props.getProperty("api.products.page.size", "0").trim());
+        this.catalogSnapshotEnabled = Boolean.parseBoolean(props.getProperty("catalog.snapshot.enabled", "true").trim());
+        this.catalogSnapshotFile = props.getProperty("catalog.snapshot.file", "./catalog-snapshot.bin").trim();
+        this.catalogUpdatedSinceParam = props.getProperty("catalog.updated.since.param", "").trim();
+        this.catalogFullRefreshHours = Long.parseLong(props.getProperty("catalog.full.refresh.hours", "24").trim());
+        this.writeBatchSize = Integer.parseInt(props.getProperty("api.write.batch.size", "50").trim());
+        this.writeFlushIntervalMillis = Long.parseLong(props.getProperty("api.write.flush.interval.ms", "2000").trim());
+        this.writeBufferCapacity = Integer.parseInt(props.getProperty("api.write.buffer.capacity", "1000").trim());
+        this.bulkWriteEnabled = Boolean.parseBoolean(props.getProperty("api.write.bulk.enabled", "false").trim());
+        this.writeConcurrency = Integer.parseInt(props.getProperty("api.write.concurrency", "4").trim());
+        this.scraperConcurrency = Integer.parseInt(props.getProperty("scraper.concurrency", "1").trim());
+        this.pipelineIngestionQueueCapacity = Integer.parseInt(props.getProperty("pipeline.ingestion.queue.capacity", "1000").trim());
+        this.pipelineSchedulingConcurrency = Integer.parseInt(props.getProperty("pipeline.scheduling.concurrency", "1").trim());
+        this.pipelineExtractionConcurrency = Integer.parseInt(props.getProperty("pipeline.extraction.concurrency", "0").trim());
+        this.pipelineExtractionQueueCapacity = Integer.parseInt(props.getProperty("pipeline.extraction.queue.capacity", "0").trim());
+        this.metricsPort = Integer.parseInt(props.getProperty("metrics.port", "0").trim());
+        this.metricsBindAddress = props.getProperty("metrics.bind.address", "").trim();
+        this.daemonEnabled = Boolean.parseBoolean(props.getProperty("daemon.enabled", "false").trim());
+        this.daemonSchedule = props.getProperty("daemon.schedule", "0 * * * *").trim();
+        this.daemonDrainTimeoutSeconds = Long.parseLong(props.getProperty("daemon.drain.timeout.seconds", "120").trim());
+        this.schedulerPrioritize = Boolean.parseBoolean(props.getProperty("scheduler.prioritize", "false").trim());
+        this.schedulerVolatilityWeight = Double.parseDouble(props.getProperty("scheduler.volatility.weight", "4").trim());
+        this.priceHistoryDirectory = props.getProperty("price.history.dir", "./price-history").trim();
+        this.priceHistorySegmentMb = Long.parseLong(props.getProperty("price.history.segment.mb", "8").trim());
+        this.priceHistoryCompactSegments = Integer.parseInt(props.getProperty("price.history.compact.segments", "8").trim());
+        this.priceHistoryRetentionDays = Long.parseLong(props.getProperty("price.history.retention.days", "365").trim());
+        this.priceAnomalyFactor = Double.parseDouble(props.getProperty("price.anomaly.factor", "10").trim());
+        this.priceAnomalyConfirmations = Integer.parseInt(props.getProperty("price.anomaly.confirmations", "3").trim());
+        this.runMaxProducts = Integer.parseInt(props.getProperty("run.max.products", "0").trim());
+        this.runTimeBudgetMinutes = Long.parseLong(props.getProperty("run.time.budget.minutes", "0").trim());
+        this.requestBlockingEnabled = Boolean.parseBoolean(props.getProperty("scraper.block.enabled", "true").trim());
+        this.blockedResourceTypes = listProperty(props, "scraper.block.resource.types", "image,media,font");
+        this.blockedUrlPatterns = listProperty(props, "scraper.block.url.patterns",
+                "google-analytics.com,googletagmanager.com,doubleclick.net,facebook.net,"
+                        + "mmstat.com,arms-retcode.aliyuncs.com,hotjar.com");
+        this.allowedUrlPatterns = listProperty(props, "scraper.allow.url.patterns", "acs.aliexpress.com,recaptcha");
+        this.fastPathEnabled = Boolean.parseBoolean(props.getProperty("scraper.fastpath.enabled", "true").trim());
+        this.rateLimitInitialPerMinute = Double.parseDouble(props.getProperty("ratelimit.initial.per.minute", "12").trim());
+        this.rateLimitMinPerMinute = Double.parseDouble(props.getProperty("ratelimit.min.per.minute", "2").trim());
+        this.rateLimitMaxPerMinute = Double.parseDouble(props.getProperty("ratelimit.max.per.minute", "60").trim());
+        this.rateLimitIncreasePerMinute = Double.parseDouble(props.getProperty("ratelimit.increase.per.minute", "1").trim());
+        this.rateLimitDecreaseFactor = Double.parseDouble(props.getProperty("ratelimit.decrease.factor", "0.5").trim());
+        this.retryBackoffBaseMillis = Long.parseLong(props.getProperty("retry.backoff.base.ms", "2000").trim());
+        this.retryBackoffMaxMillis = Long.parseLong(props.getProperty("retry.backoff.max.ms", "60000").trim());
+        this.humanPauseMillis = Long.parseLong(props.getProperty("scraper.human.pause.ms", "400").trim());
+        this.priceWaitTimeoutMillis = Long.parseLong(props.getProperty("scraper.price.wait.timeout.ms", "20000").trim());
+        this.priceSelectors = listProperty(props, "scraper.price.selectors",
+                "span.product-price-value,.uniform-banner-box-price,"
+                        + "[class*='Price_uniformBannerBoxPrice'],[class*='Price_promotion']");
+        this.priceSelectorStaleAfterMisses = Integer.parseInt(props.getProperty("scraper.price.selector.stale.after", "30").trim());
+        this.priceCacheEnabled = Boolean.parseBoolean(props.getProperty("price.cache.enabled", "true").trim());
+        this.priceCacheFile = props.getProperty("price.cache.file", "./price-cache.log").trim();
+        this.priceCacheTtlMinutes = Long.parseLong(props.getProperty("price.cache.ttl.minutes", "60").trim());
+        this.priceCacheMaxEntries = Integer.parseInt(props.getProperty("price.cache.max.entries", "100000").trim());
+        this.journalFile = props.getProperty("journal.file", "./run-journal.log").trim();
+        this.journalFsyncIntervalMillis = Long.parseLong(props.getProperty("journal.fsync.interval.ms", "200").trim());
+        this.minPriceChangeCents = Long.parseLong(props.getProperty("price.change.min.absolute.cents", "1").trim());
+        this.minPriceChangePercent = Double.parseDouble(props.getProperty("price.change.min.percent", "0").trim());
+        this.maxUnchangedPriceAgeHours = Long.parseLong(props.getProperty("price.change.max.age.hours", "0").trim());
+        this.httpMaxConcurrentRequests = Integer.parseInt(props.getProperty("http.max.concurrent.requests", "32").trim());
+        this.httpTimeoutMillis = Long.parseLong(props.getProperty("http.timeout.ms", "30000").trim());
+        this.httpMaxRetries = Integer.parseInt(props.getProperty("http.max.retries", "0").trim());
+        this.writeMaxRetries = Integer.parseInt(props.getProperty("api.write.max.retries", "2").trim());
+        this.browserRecyclePages = Integer.parseInt(props.getProperty("scraper.recycle.pages", "200").trim());
+        this.browserRecycleMemoryMb = Long.parseLong(props.getProperty("scraper.recycle.memory.mb", "1024").trim());
+        this.priceLocale = props.getProperty("price.locale", "pt-BR").trim();
+        this.priceMinCents = Long.parseLong(props.getProperty("price.min.cents", "1").trim());
+        this.priceMaxCents = Long.parseLong(props.getProperty("price.max.cents", "10000000").trim());
+        this.alertSink = props.getProperty("alert.sink", "sms").trim();
+        this.alertSmsRecipients = listProperty(props, "alert.sms.recipients", "5581988189893,5581997417562");
+        this.alertWindowSeconds = Long.parseLong(props.getProperty("alert.window.seconds", "300").trim());
+        this.alertDedupMinutes = Long.parseLong(props.getProperty("alert.dedup.minutes", "60").trim());
+        this.alertMaxPerHour = Integer.parseInt(props.getProperty("alert.max.per.hour", "4").trim());
+        this.shardEnabled = Boolean.parseBoolean(props.getProperty("shard.enabled", "false").trim());
+        this.shardDirectory = props.getProperty("shard.directory", "./shards").trim();
+        this.shardWorkerId = props.getProperty("shard.worker.id", "").trim();
+        this.shardLeaseSeconds = Long.parseLong(props.getProperty("shard.lease.seconds", "30").trim());
+        this.shardVirtualNodes = Integer.parseInt(props.getProperty("shard.virtual.nodes", "64").trim());
+    }
+
+    private static List<String> listProperty(Properties props, String key, String defaultValue) {
+        return Arrays.stream(props.getProperty(key, defaultValue).split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toList();
     }
 
     public static AppConfig getInstance() {
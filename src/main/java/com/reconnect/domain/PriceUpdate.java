@@ -0,0 +1,4 @@
+package com.reconnect.domain;
+
+public record PriceUpdate(String productId, String productLink, long priceInCents) {
+}
@@ -0,0 +1,239 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects failures off the scraping path and sends at most one summary per window through the
+ * configured sink, skipping summaries identical to a recent one and capping messages per hour.
+ */
+@Slf4j
+public class AlertService implements AutoCloseable {
+    private static final String HEADER = "DALE BURRO ELTON, O PROCESSO DE BUSCAR PRECOS FALHOU VISSE, BOM DAR UMA OLHADA";
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_ERROR_LINES = 3;
+    private static final int MAX_ERROR_KEY_LENGTH = 80;
+    private static final long CLOSE_CHECK_MILLIS = 1000;
+    private static final int MAX_SEND_ATTEMPTS = 3;
+
+    private final AlertSink sink;
+    private final long windowMillis;
+    private final long dedupMillis;
+    private final int maxPerHour;
+    private final LinkedBlockingQueue<Failure> failures = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Deque<Long> sentAt = new ArrayDeque<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread dispatcher;
+    private final LoggingService logger;
+
+    private final Map<String, Integer> errorCounts = new LinkedHashMap<>();
+    private final Set<String> products = new HashSet<>();
+    private int failureCount;
+    private int carriedOver;
+    private String lastSignature;
+    private long lastSentMillis;
+    private String retryMessage;
+    private List<String> retryRecipients;
+    private int retryAttempts;
+    private volatile boolean closed;
+
+    public AlertService(AlertSink sink, Duration window, Duration dedup, int maxPerHour) {
+        this.logger = new LoggingService(AlertService.class);
+        this.sink = sink;
+        this.windowMillis = window.toMillis();
+        this.dedupMillis = dedup.toMillis();
+        this.maxPerHour = maxPerHour;
+
+        this.dispatcher = new Thread(this::dispatchLoop, "alert-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public static AlertService fromConfig() {
+        AppConfig config = AppConfig.getInstance();
+        AlertSink sink;
+        if (!"sms".equalsIgnoreCase(config.getAlertSink())) {
+            sink = new LogAlertSink();
+        } else if (config.getAlertSmsRecipients().isEmpty()) {
+            // Loud rather than silent: otherwise nobody learns that alerts stopped reaching a phone
+            log.error("alert.sink=sms but alert.sms.recipients is empty, failure alerts will only be logged");
+            sink = new LogAlertSink();
+        } else {
+            sink = SmsService.fromConfig();
+        }
+        return new AlertService(
+                sink,
+                Duration.ofSeconds(config.getAlertWindowSeconds()),
+                Duration.ofMinutes(config.getAlertDedupMinutes()),
+                config.getAlertMaxPerHour()
+        );
+    }
+
+    public void reportFailure(String productId, Throwable error) {
+        // Never blocks: under a flood the excess is only counted, the summary still goes out
+        if (!failures.offer(new Failure(productId, errorKey(error)))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        // No interrupt, so an SMS already being sent is not cut off halfway
+        closed = true;
+        dispatcher.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void dispatchLoop() {
+        long windowEnd = System.currentTimeMillis() + windowMillis;
+
+        while (!closed) {
+            try {
+                long remaining = windowEnd - System.currentTimeMillis();
+                Failure failure = remaining > 0
+                        ? failures.poll(Math.min(remaining, CLOSE_CHECK_MILLIS), TimeUnit.MILLISECONDS)
+                        : null;
+                if (failure != null) {
+                    aggregate(failure);
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (System.currentTimeMillis() >= windowEnd) {
+                flushWindow();
+                windowEnd = System.currentTimeMillis() + windowMillis;
+            }
+        }
+
+        Failure failure;
+        while ((failure = failures.poll()) != null) {
+            aggregate(failure);
+        }
+        flushWindow();
+        if (carriedOver > 0) {
+            logger.error("{} failure(s) were held back and never alerted", carriedOver);
+        }
+    }
+
+    private void aggregate(Failure failure) {
+        failureCount++;
+        errorCounts.merge(failure.errorKey(), 1, Integer::sum);
+        products.add(failure.productId());
+    }
+
+    private void flushWindow() {
+        retryFailedRecipients();
+
+        int droppedFailures = (int) dropped.getAndSet(0);
+        if (failureCount == 0 && droppedFailures == 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        String signature = String.join("|", new TreeSet<>(errorCounts.keySet()));
+        boolean duplicate = signature.equals(lastSignature) && now - lastSentMillis < dedupMillis;
+        while (!sentAt.isEmpty() && now - sentAt.peekFirst() > TimeUnit.HOURS.toMillis(1)) {
+            sentAt.pollFirst();
+        }
+        boolean rateLimited = sentAt.size() >= maxPerHour;
+
+        if (duplicate || rateLimited) {
+            logger.info("Holding alert for {} failure(s): {}", failureCount + droppedFailures,
+                    duplicate ? "same errors as the last alert" : "hourly alert limit reached");
+            carriedOver += failureCount + droppedFailures;
+        } else {
+            String message = summary(droppedFailures);
+            try {
+                List<String> failed = sink.send(message, null);
+                sentAt.addLast(now);
+                lastSignature = signature;
+                lastSentMillis = now;
+                carriedOver = 0;
+                if (!failed.isEmpty()) {
+                    // The others already have it; only the unreached recipients get it again next window
+                    logger.error("Alert did not reach {}, retrying them next window", failed);
+                    retryMessage = message;
+                    retryRecipients = List.copyOf(failed);
+                    retryAttempts = 1;
+                }
+            } catch (Exception e) {
+                // Counted into the next summary, like a held alert
+                logger.error("Failed to send alert for {} failure(s): {}", failureCount + droppedFailures, e.getMessage());
+                carriedOver += failureCount + droppedFailures;
+            }
+        }
+
+        failureCount = 0;
+        errorCounts.clear();
+        products.clear();
+    }
+
+    private void retryFailedRecipients() {
+        if (retryMessage == null) {
+            return;
+        }
+
+        List<String> failed;
+        try {
+            failed = sink.send(retryMessage, retryRecipients);
+        } catch (Exception e) {
+            logger.error("Failed to resend alert to {}: {}", retryRecipients, e.getMessage());
+            failed = retryRecipients;
+        }
+        retryAttempts++;
+
+        if (failed.isEmpty() || retryAttempts >= MAX_SEND_ATTEMPTS) {
+            if (!failed.isEmpty()) {
+                logger.error("Giving up on alert for {} after {} attempts", failed, retryAttempts);
+            }
+            retryMessage = null;
+            retryRecipients = null;
+        } else {
+            retryRecipients = List.copyOf(failed);
+        }
+    }
+
+    private String summary(int droppedFailures) {
+        StringBuilder message = new StringBuilder(HEADER)
+                .append("\n").append(failureCount + droppedFailures).append(" falha(s) em ")
+                .append(products.size()).append(" produto(s) nos ultimos ")
+                .append(Math.max(1, windowMillis / 60_000)).append(" min");
+        if (carriedOver > 0) {
+            message.append(" (+").append(carriedOver).append(" em alertas retidos)");
+        }
+
+        errorCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(MAX_ERROR_LINES)
+                .forEach(entry -> message.append("\n").append(entry.getValue()).append("x ").append(entry.getKey()));
+        return message.toString();
+    }
+
+    private static String errorKey(Throwable error) {
+        if (error == null) {
+            return "erro desconhecido";
+        }
+        String text = error.getMessage() == null
+                ? error.getClass().getSimpleName()
+                : error.getClass().getSimpleName() + ": " + error.getMessage();
+        return text.length() > MAX_ERROR_KEY_LENGTH ? text.substring(0, MAX_ERROR_KEY_LENGTH) : text;
+    }
+
+    private record Failure(String productId, String errorKey) {
+    }
+}
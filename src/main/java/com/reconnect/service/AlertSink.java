@@ -0,0 +1,11 @@
+package com.reconnect.service;
+
+import java.util.List;
+
+public interface AlertSink {
+    /**
+     * Sends to the given recipients, or to every configured one when {@code recipients} is null, and
+     * returns those that could not be reached. Throws only when the message reached nobody.
+     */
+    List<String> send(String message, List<String> recipients) throws Exception;
+}
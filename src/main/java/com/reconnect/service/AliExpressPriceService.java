@@ -1,5 +1,7 @@
 package com.reconnect.service;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.microsoft.playwright.*;
 import com.microsoft.playwright.options.LoadState;
 import com.reconnect.config.AppConfig;
@@ -8,29 +10,81 @@ import com.twocaptcha.captcha.ReCaptcha;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.Arrays;
 
 @Slf4j
 public class AliExpressPriceService {
+    private static final String FIND_PRICE_SCRIPT = """
+            selectors => {
+                for (const selector of selectors) {
+                    const element = document.querySelector(selector);
+                    const text = element && element.textContent;
+                    // Any digit will do; whole amounts like "R$ 150" are valid, and PriceTextParser decides
+                    if (text && /\\d/.test(text)) {
+                        return { selector, text };
+                    }
+                }
+                return null;
+            }
+            """;
+    private static final Pattern SITE_KEY_PATTERN = Pattern.compile("sitekey:\"([^\"]+)\"");
+
+    private static final String STEALTH_SCRIPT = "" +
+            "Object.defineProperty(navigator, 'webdriver', { get: () => undefined });" +
+            "Object.defineProperty(navigator, 'plugins', { get: () => [1, 2, 3, 4, 5] });" +
+            "Object.defineProperty(navigator, 'languages', { get: () => ['pt-BR', 'pt', 'en-US', 'en'] });";
 
     private final Playwright playwright;
-    private final BrowserContext browser;
+    private final Path userDataDir;
+    private final RequestBlocker requestBlocker;
+    private final int recycleAfterPages;
+    private BrowserContext browser;
+    private Page page;
+    private int pagesSinceLaunch;
     private final LoggingService logger;
     private final TwoCaptcha solver;
+    private final HostRateLimiter rateLimiter;
+    private final long humanPauseMillis;
+    private final long priceWaitTimeoutMillis;
+    private final PriceTextParser priceTextParser;
+    private final EmbeddedPriceExtractor embeddedPriceExtractor;
+    private final PriceSelectorRegistry selectorRegistry;
+    private final MetricsService metrics;
 
     public AliExpressPriceService() {
+        this(Path.of("./browser-data"), RequestBlocker.fromConfig(), new HostRateLimiter(),
+                new EmbeddedPriceExtractor(new HttpService()), PriceSelectorRegistry.fromConfig());
+    }
+
+    public AliExpressPriceService(Path userDataDir, RequestBlocker requestBlocker, HostRateLimiter rateLimiter,
+                                  EmbeddedPriceExtractor embeddedPriceExtractor,
+                                  PriceSelectorRegistry selectorRegistry) {
         this.logger = new LoggingService(AliExpressPriceService.class);
         this.solver = new TwoCaptcha(AppConfig.getInstance().getCaptchaApiKey());
+        this.rateLimiter = rateLimiter;
+        this.humanPauseMillis = AppConfig.getInstance().getHumanPauseMillis();
+        this.priceWaitTimeoutMillis = AppConfig.getInstance().getPriceWaitTimeoutMillis();
+        this.priceTextParser = PriceTextParser.fromConfig();
+        this.embeddedPriceExtractor = embeddedPriceExtractor;
+        this.selectorRegistry = selectorRegistry;
+        this.metrics = MetricsService.getInstance();
+        this.userDataDir = userDataDir;
+        this.requestBlocker = requestBlocker;
+        this.recycleAfterPages = AppConfig.getInstance().getBrowserRecyclePages();
         playwright = Playwright.create();
+        browser = launchContext();
+    }
 
-        browser = playwright.chromium().launchPersistentContext(Path.of("./browser-data"),
+    private BrowserContext launchContext() {
+        BrowserContext context = playwright.chromium().launchPersistentContext(userDataDir,
                 new BrowserType.LaunchPersistentContextOptions()
                         .setLocale("pt-BR")
                         .setHeadless(true)
@@ -61,25 +115,83 @@ public class AliExpressPriceService {
                                 put("sec-fetch-dest", "document");
                             }
                         }));
+
+        // Applies to every page of the context, so the reused tab does not re-register it per product
+        context.addInitScript(STEALTH_SCRIPT);
+        if (requestBlocker != null) {
+            requestBlocker.install(context);
+        }
+        return context;
+    }
+
+    public void recycle() {
+        logger.info("Recycling browser for {} after {} page(s)", userDataDir, pagesSinceLaunch);
+        closePage();
+        try {
+            browser.close();
+        } catch (Exception e) {
+            logger.error("Error closing browser for recycling: {}", e.getMessage());
+        }
+        browser = launchContext();
+        pagesSinceLaunch = 0;
+        metrics.increment("browser_recycle");
+    }
+
+    /**
+     * JavaScript heap reserved by the reused tab, read over CDP ({@code Performance.getMetrics}), so
+     * it works wherever Chromium runs. Empty before the first page or when CDP does not answer.
+     */
+    public OptionalLong jsHeapBytes() {
+        if (page == null || page.isClosed()) {
+            return OptionalLong.empty();
+        }
+
+        CDPSession session = browser.newCDPSession(page);
+        try {
+            session.send("Performance.enable");
+            JsonObject result = session.send("Performance.getMetrics");
+            for (JsonElement metric : result.getAsJsonArray("metrics")) {
+                JsonObject entry = metric.getAsJsonObject();
+                if ("JSHeapTotalSize".equals(entry.get("name").getAsString())) {
+                    return OptionalLong.of(entry.get("value").getAsLong());
+                }
+            }
+            return OptionalLong.empty();
+        } finally {
+            session.detach();
+        }
     }
 
-    public Optional<BigDecimal> getPriceFromUrl(String url) {
-        Page page = null;
+    /**
+     * Loads the listing once and returns the price of every SKU it carries, keyed by SKU id. When the
+     * page data has no entry for {@code skuId} the rendered price is added under it ("" without a SKU).
+     */
+    public Map<String, Long> getPricesFromUrl(String url, String skuId) {
+        boolean pageHealthy = false;
+        boolean captchaSeen = false;
+        boolean priced = false;
 
         try {
-            logger.startOperation("getPriceFromUrl");
+            logger.startOperation("getPricesFromUrl");
             logger.info("Starting price fetch for URL: {}", url);
 
-            page = browser.newPage();
-            page.addInitScript("" +
-                    "Object.defineProperty(navigator, 'webdriver', { get: () => undefined });" +
-                    "Object.defineProperty(navigator, 'plugins', { get: () => [1, 2, 3, 4, 5] });" +
-                    "Object.defineProperty(navigator, 'languages', { get: () => ['pt-BR', 'pt', 'en-US', 'en'] });");
+            if (recycleAfterPages > 0 && pagesSinceLaunch >= recycleAfterPages) {
+                recycle();
+            }
+            if (page == null || page.isClosed()) {
+                // A persistent context starts with a blank tab; take it before opening another
+                page = browser.pages().isEmpty() ? browser.newPage() : browser.pages().get(0);
+            }
+            pagesSinceLaunch++;
 
             logger.info("Navigating to URL: {}", url);
-            page.navigate(url);
-            page.waitForLoadState(LoadState.DOMCONTENTLOADED,
-                    new Page.WaitForLoadStateOptions().setTimeout(120000));
+            try (MetricsService.Span span = metrics.span("navigation")) {
+                page.navigate(url);
+            }
+            try (MetricsService.Span span = metrics.span("dom_load")) {
+                page.waitForLoadState(LoadState.DOMCONTENTLOADED,
+                        new Page.WaitForLoadStateOptions().setTimeout(120000));
+            }
 
             simulateHumanBehavior(page);
 
@@ -89,13 +201,16 @@ public class AliExpressPriceService {
 
             while (captchaAttempt < maxCaptchaRetries && !captchaSolved) {
                 if (isCaptchaPresent(page)) {
-                    try {
+                    if (captchaAttempt == 0) {
+                        captchaSeen = true;
+                        metrics.increment("captcha");
+                    }
+                    try (MetricsService.Span span = metrics.span("captcha")) {
                         handleCaptcha(page);
 
                         page.waitForLoadState(LoadState.DOMCONTENTLOADED,
                         new Page.WaitForLoadStateOptions().setTimeout(60000));
-                        
-                        Thread.sleep(5000);
+
                         captchaSolved = !isCaptchaPresent(page);
                         if (!captchaSolved) {
                             logger.info("Captcha still present after attempt {}. Retrying...", captchaAttempt + 1);
@@ -111,27 +226,63 @@ public class AliExpressPriceService {
 
             if (!captchaSolved) {
                 logger.error("Failed to solve captcha after {} attempts", maxCaptchaRetries);
-                return Optional.empty();
+                return Map.of();
             }
 
-            return extractPriceWithRetry(page, 3);
+            Map<String, Long> prices;
+            try (MetricsService.Span span = metrics.span("price_extraction")) {
+                prices = new HashMap<>(embeddedPriceExtractor.extractPrices(page.content()));
+                if (EmbeddedPriceExtractor.priceForSku(prices, skuId).isEmpty()) {
+                    extractPrice(page).ifPresent(cents -> prices.put(skuId == null ? "" : skuId, cents));
+                }
+            }
+            pageHealthy = true;
+            priced = EmbeddedPriceExtractor.priceForSku(prices, skuId).isPresent();
+            return prices;
 
         } catch (Exception e) {
             logger.error("Error fetching price from AliExpress", e);
-            return Optional.empty();
+            return Map.of();
         } finally {
-            if (page != null) {
-                try {
-                    page.close();
-                    logger.debug("Closed browser tab for URL: {}", url);
-                } catch (Exception e) {
-                    logger.error("Error closing browser tab", e);
-                }
+            // The only place a browser attempt reaches the rate limiter, so one captcha backs off once,
+            // even when it was solved and the price came through
+            if (captchaSeen || !priced) {
+                rateLimiter.onFailure(url);
+            } else {
+                rateLimiter.onSuccess(url);
             }
-            logger.endOperation("getPriceFromUrl");
+            if (pageHealthy) {
+                releasePage();
+            } else {
+                // After a captcha loop or an error the tab state is unknown, start the next product on a fresh one
+                closePage();
+            }
+            logger.endOperation("getPricesFromUrl");
+        }
+    }
+
+    private void releasePage() {
+        try {
+            // Stops the product page's scripts and drops its DOM while the tab waits for the next product
+            page.navigate("about:blank");
+        } catch (Exception e) {
+            logger.debug("Could not blank browser tab, replacing it: {}", e.getMessage());
+            closePage();
         }
     }
 
+    private void closePage() {
+        if (page == null) {
+            return;
+        }
+        try {
+            page.close();
+        } catch (Exception e) {
+            logger.error("Error closing browser tab", e);
+        }
+        page = null;
+    }
+
     private boolean isCaptchaPresent(Page page) {
         try {
             for (Frame frame : page.frames()) {
@@ -175,11 +326,14 @@ public class AliExpressPriceService {
             }
 
             if (captchaFrame != null) {
-                Thread.sleep(30000);
+                // Wait for the reCAPTCHA bootstrap script instead of a fixed delay
+                captchaFrame.waitForFunction(
+                        "() => document.documentElement.innerHTML.includes('sitekey')",
+                        null,
+                        new Frame.WaitForFunctionOptions().setTimeout(30000));
 
                 String content = captchaFrame.content();
-                Pattern pattern = Pattern.compile("sitekey:\"([^\"]+)\"");
-                Matcher matcher = pattern.matcher(content);
+                Matcher matcher = SITE_KEY_PATTERN.matcher(content);
 
                 if (matcher.find()) {
                     String siteKey = matcher.group(1);
@@ -208,7 +362,14 @@ public class AliExpressPriceService {
                                 "}" +
                                 "})();"));
 
-                        Thread.sleep(30000);
+                        Frame solvedFrame = captchaFrame;
+                        try {
+                            // The challenge frame goes away once the page accepts the token
+                            page.waitForCondition(solvedFrame::isDetached,
+                                    new Page.WaitForConditionOptions().setTimeout(30000));
+                        } catch (TimeoutError e) {
+                            logger.info("Captcha still displayed 30s after submitting the solution");
+                        }
                         logger.info("Captcha solved and submitted successfully");
                     } catch (Exception e) {
                         logger.error("2captcha error: {}", e.getMessage());
@@ -229,51 +390,53 @@ public class AliExpressPriceService {
     private void simulateHumanBehavior(Page page) {
         try {
             page.evaluate("window.scrollTo(0, Math.floor(Math.random() * 100));");
-            Thread.sleep(1000);
+            page.waitForTimeout(humanPause());
 
             page.mouse().move(100 + Math.random() * 100, 100 + Math.random() * 100);
-            Thread.sleep(500);
+            page.waitForTimeout(humanPause());
 
             page.evaluate("window.scrollTo(0, document.body.scrollHeight / 2);");
-            Thread.sleep(1000);
+            page.waitForTimeout(humanPause());
         } catch (Exception e) {
             logger.debug("Error during human behavior simulation: {}", e.getMessage());
         }
     }
 
-    private Optional<BigDecimal> extractPriceWithRetry(Page page, int maxRetries) {
-        String[] priceSelectors = {
-                "span.product-price-value",
-                ".uniform-banner-box-price",
-                "[class*='Price_uniformBannerBoxPrice']",
-                "[class*='Price_promotion']"
-        };
-
-        for (int attempt = 0; attempt < maxRetries; attempt++) {
-            try {
-                Thread.sleep(6000);
-                for (String selector : priceSelectors) {
-                    ElementHandle element = page.querySelector(selector);
-                    if (element != null) {
-                        String priceText = element.textContent();
-                        logger.info("Found price with selector {}: {}", selector, priceText);
-
-                        Pattern pattern = Pattern.compile("\\d+[.,]\\d+");
-                        Matcher matcher = pattern.matcher(priceText);
-
-                        if (matcher.find()) {
-                            String price = matcher.group().replace(",", ".");
-                            return Optional.of(new BigDecimal(price));
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                logger.debug("Attempt {} failed: {}", attempt + 1, e.getMessage());
+    private double humanPause() {
+        // Jittered around the configured pause so the rhythm is not machine-regular
+        return humanPauseMillis * (0.5 + ThreadLocalRandom.current().nextDouble());
+    }
+
+    private OptionalLong extractPrice(Page page) {
+        List<String> selectors = selectorRegistry.orderedSelectors();
+        long start = System.nanoTime();
+        try {
+            // One in-page check of every selector per animation frame, resolved as soon as a price renders
+            JSHandle match = page.waitForFunction(FIND_PRICE_SCRIPT, selectors,
+                    new Page.WaitForFunctionOptions().setTimeout(priceWaitTimeoutMillis));
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> result = (Map<String, Object>) match.jsonValue();
+            match.dispose();
+
+            String selector = (String) result.get("selector");
+            String priceText = (String) result.get("text");
+            logger.info("Found price with selector {}: {}", selector, priceText);
+
+            long cents = priceTextParser.parseCents(priceText);
+            // Only a parsed price counts as a hit; a selector matching other text must not climb the order
+            selectorRegistry.record(selectors, cents == PriceTextParser.NOT_FOUND ? null : selector,
+                    System.nanoTime() - start);
+            if (cents == PriceTextParser.NOT_FOUND) {
+                logger.info("No price in range in text {}", priceText);
+                return OptionalLong.empty();
             }
+            return OptionalLong.of(cents);
+        } catch (TimeoutError e) {
+            selectorRegistry.record(selectors, null, System.nanoTime() - start);
+            logger.info("Price not found within {} ms", priceWaitTimeoutMillis);
+            return OptionalLong.empty();
         }
-
-        logger.info("Price not found after {} attempts", maxRetries);
-        return Optional.empty();
     }
 
     public void close() throws InterruptedException {
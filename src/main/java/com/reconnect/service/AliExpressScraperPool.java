@@ -0,0 +1,176 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class AliExpressScraperPool {
+    private static final int MEMORY_CHECK_INTERVAL = 25;
+    private static final int MAX_MEASUREMENT_FAILURES = 3;
+
+    private final List<AliExpressPriceService> services;
+    private final BlockingQueue<AliExpressPriceService> idleServices;
+    private final RequestBlocker requestBlocker;
+    private final PriceSelectorRegistry selectorRegistry;
+    private final LoggingService logger;
+    private final AtomicLong pagesServed = new AtomicLong();
+    private final AtomicInteger measurementFailures = new AtomicInteger();
+    private volatile long memoryLimitBytes;
+    private volatile boolean processMemoryReadable;
+
+    public AliExpressScraperPool(int size, HostRateLimiter rateLimiter, EmbeddedPriceExtractor embeddedPriceExtractor) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Scraper pool size must be at least 1, got " + size);
+        }
+
+        this.logger = new LoggingService(AliExpressScraperPool.class);
+        this.services = new ArrayList<>(size);
+        // Fair queue so waiting workers are served in arrival order
+        this.idleServices = new ArrayBlockingQueue<>(size, true);
+        this.requestBlocker = RequestBlocker.fromConfig();
+        // Shared, so every browser learns from every page
+        this.selectorRegistry = PriceSelectorRegistry.fromConfig();
+        this.memoryLimitBytes = AppConfig.getInstance().getBrowserRecycleMemoryMb() * 1024 * 1024;
+
+        try {
+            for (int i = 0; i < size; i++) {
+                // Chromium locks its user data dir, so every browser needs its own
+                Path userDataDir = i == 0 ? Path.of("./browser-data") : Path.of("./browser-data-" + i);
+                AliExpressPriceService service = new AliExpressPriceService(userDataDir, requestBlocker, rateLimiter,
+                        embeddedPriceExtractor, selectorRegistry);
+                services.add(service);
+                idleServices.add(service);
+            }
+        } catch (RuntimeException e) {
+            closeQuietly();
+            throw new RuntimeException("Failed to start scraper pool", e);
+        }
+
+        logger.info("Started scraper pool with {} browser(s)", size);
+        if (memoryLimitBytes > 0) {
+            processMemoryReadable = browserMemoryBytes() >= 0;
+            if (!processMemoryReadable) {
+                // No /proc here (Windows, macOS): the limit is checked against each tab's JS heap instead
+                logger.error("scraper.recycle.memory.mb is set but browser process memory is not readable on this "
+                        + "platform, recycling on the JavaScript heap of each browser tab instead");
+            }
+        }
+    }
+
+    public Map<String, Long> getPricesFromUrl(String url, String skuId) throws InterruptedException {
+        AliExpressPriceService service = idleServices.take();
+        try {
+            return service.getPricesFromUrl(url, skuId);
+        } finally {
+            recycleIfOverMemory(service);
+            idleServices.add(service);
+        }
+    }
+
+    private void recycleIfOverMemory(AliExpressPriceService service) {
+        if (memoryLimitBytes <= 0 || pagesServed.incrementAndGet() % MEMORY_CHECK_INTERVAL != 0) {
+            return;
+        }
+
+        long perBrowser;
+        if (processMemoryReadable) {
+            long browserBytes = browserMemoryBytes();
+            perBrowser = browserBytes < 0 ? -1 : browserBytes / services.size();
+        } else {
+            perBrowser = tabHeapBytes(service);
+        }
+        if (perBrowser < 0) {
+            // A tab mid-navigation or a process exiting during the scan fails once; only a steady failure is fatal
+            int failures = measurementFailures.incrementAndGet();
+            if (failures >= MAX_MEASUREMENT_FAILURES) {
+                logger.error("Browser memory could not be measured {} times in a row, recycling by page count only",
+                        failures);
+                memoryLimitBytes = 0;
+            } else {
+                logger.info("Browser memory could not be measured, skipping this check");
+            }
+            return;
+        }
+        measurementFailures.set(0);
+
+        if (perBrowser > memoryLimitBytes) {
+            logger.info("Browsers use {} MB each, over the {} MB limit",
+                    perBrowser / (1024 * 1024), memoryLimitBytes / (1024 * 1024));
+            try {
+                service.recycle();
+            } catch (RuntimeException e) {
+                logger.error("Failed to recycle browser: {}", e.getMessage());
+            }
+        }
+    }
+
+    private long tabHeapBytes(AliExpressPriceService service) {
+        try {
+            OptionalLong heap = service.jsHeapBytes();
+            // A tab that has not loaded anything yet has nothing to recycle
+            return heap.isPresent() ? heap.getAsLong() : 0;
+        } catch (RuntimeException e) {
+            logger.debug("CDP memory query failed: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    private static long browserMemoryBytes() {
+        // Proportional set size of the Playwright driver and every Chromium process under this JVM,
+        // so pages shared between renderer processes are not counted twice
+        long total = 0;
+        for (ProcessHandle process : ProcessHandle.current().descendants().toList()) {
+            try {
+                for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(process.pid()), "smaps_rollup"))) {
+                    if (line.startsWith("Pss:")) {
+                        total += Long.parseLong(line.substring(4).trim().split("\\s+")[0]) * 1024;
+                        break;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!process.isAlive()) {
+                    continue;
+                }
+                return -1;
+            }
+        }
+        return total;
+    }
+
+    public void logRunStats() {
+        if (requestBlocker != null) {
+            requestBlocker.logSummaryAndReset();
+        }
+        selectorRegistry.logSummary();
+    }
+
+    public int size() {
+        return services.size();
+    }
+
+    public void close() throws InterruptedException {
+        for (AliExpressPriceService service : services) {
+            service.close();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.reconnect.service;
+
+import com.reconnect.domain.Product;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Binary copy of the last fetched catalog, kept page by page together with each page's HTTP
+ * validators. The file is read into memory as raw bytes and a product is only decoded when it is
+ * handed out, so a 304 for a page costs no JSON parsing. It is deliberately not memory-mapped: on
+ * Windows a mapped file cannot be replaced, and {@link Writer#commit} swaps in the next snapshot
+ * while this one is still in use.
+ *
+ * <pre>
+ * "RCS1" | records... | footer | footer offset (long)
+ * record: length (int) | uuid | id | link | price | skuId | createdAt | updatedAt
+ * footer: fullSyncedAt | watermark | page count | pages (url, etag, lastModified, cursor info, record range)
+ * </pre>
+ */
+@Slf4j
+public class CatalogSnapshot {
+    private static final int MAGIC = 0x52435331; // "RCS1"
+    private static final int NULL_LENGTH = -1;
+    // Static because open() decides whether there is a snapshot before any instance exists
+    private static final LoggingService logger = new LoggingService(CatalogSnapshot.class);
+
+    private final ByteBuffer buffer;
+    private final long fullSyncedAt;
+    private final LocalDateTime watermark;
+    private final List<Page> pages;
+    private final Map<String, Page> pagesByUrl = new HashMap<>();
+
+    private CatalogSnapshot(ByteBuffer buffer, long fullSyncedAt, LocalDateTime watermark, List<Page> pages) {
+        this.buffer = buffer;
+        this.fullSyncedAt = fullSyncedAt;
+        this.watermark = watermark;
+        this.pages = pages;
+        for (Page page : pages) {
+            if (page.url() != null) {
+                pagesByUrl.put(page.url(), page);
+            }
+        }
+    }
+
+    /**
+     * Reads the snapshot at {@code file}, or returns null when there is none or it cannot be read,
+     * in which case the catalog is simply fetched in full.
+     */
+    public static CatalogSnapshot open(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < Integer.BYTES + Long.BYTES || size > Integer.MAX_VALUE) {
+                logger.info("Ignoring catalog snapshot {} of unusable size {}", file, size);
+                return null;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+            buffer.flip();
+            if (buffer.getInt(0) != MAGIC) {
+                logger.info("Ignoring catalog snapshot {} with unknown format", file);
+                return null;
+            }
+
+            ByteBuffer footer = buffer.duplicate().position((int) buffer.getLong((int) size - Long.BYTES));
+            long fullSyncedAt = footer.getLong();
+            LocalDateTime watermark = readDateTime(footer);
+            int pageCount = footer.getInt();
+            List<Page> pages = new ArrayList<>(pageCount);
+            for (int i = 0; i < pageCount; i++) {
+                pages.add(new Page(readString(footer), readString(footer), readString(footer),
+                        footer.get() == 1, readString(footer), footer.get() == 1,
+                        footer.getInt(), footer.getInt(), footer.getInt()));
+            }
+            return new CatalogSnapshot(buffer, fullSyncedAt, watermark, pages);
+        } catch (IOException | RuntimeException e) {
+            // A torn or foreign file only costs one full fetch
+            logger.info("Ignoring unreadable catalog snapshot {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    public long fullSyncedAt() {
+        return fullSyncedAt;
+    }
+
+    public LocalDateTime watermark() {
+        return watermark;
+    }
+
+    public List<Page> pages() {
+        return pages;
+    }
+
+    public Page page(String url) {
+        return pagesByUrl.get(url);
+    }
+
+    public int forEach(Page page, Consumer<Product> consumer) {
+        ByteBuffer records = buffer.duplicate().position(page.offset()).limit(page.offset() + page.length());
+        int count = 0;
+        while (records.hasRemaining()) {
+            int length = records.getInt();
+            ByteBuffer record = records.slice(records.position(), length);
+            records.position(records.position() + length);
+            consumer.accept(readProduct(record));
+            count++;
+        }
+        return count;
+    }
+
+    public static Writer create(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    private static Product readProduct(ByteBuffer record) {
+        Product product = new Product();
+        product.setUuid(readString(record));
+        product.setId(readString(record));
+        product.setLink(readString(record));
+        String price = readString(record);
+        product.setPrice(price == null ? null : new BigDecimal(price));
+        product.setSkuId(readString(record));
+        product.setCreatedAt(readDateTime(record));
+        product.setUpdatedAt(readDateTime(record));
+        return product;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Url, validators and cursor of one catalog page, plus where its records sit in the file.
+     */
+    public record Page(String url, String etag, String lastModified, boolean cursorPaged, String nextCursor,
+                       boolean last, int count, int offset, int length) {
+    }
+
+    /**
+     * Builds the next snapshot in a temporary file; {@link #commit} swaps it in atomically.
+     */
+    public static class Writer implements AutoCloseable {
+        private final Path file;
+        private final Path tempFile;
+        private final CountingOutputStream counter;
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(512);
+        private final DataOutputStream record = new DataOutputStream(recordBytes);
+        private final List<Page> pages = new ArrayList<>();
+
+        private LocalDateTime watermark;
+        private String pageUrl;
+        private String pageEtag;
+        private String pageLastModified;
+        private int pageCount;
+        private long pageOffset;
+        private boolean committed;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            this.counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024));
+            this.out = new DataOutputStream(counter);
+            out.writeInt(MAGIC);
+        }
+
+        public void beginPage(String url, String etag, String lastModified) {
+            pageUrl = url;
+            pageEtag = etag;
+            pageLastModified = lastModified;
+            pageCount = 0;
+            pageOffset = counter.written;
+        }
+
+        public void write(Product product) throws IOException {
+            recordBytes.reset();
+            writeString(record, product.getUuid());
+            writeString(record, product.getId());
+            writeString(record, product.getLink());
+            writeString(record, product.getPrice() == null ? null : product.getPrice().toPlainString());
+            writeString(record, product.getSkuId());
+            writeDateTime(record, product.getCreatedAt());
+            writeDateTime(record, product.getUpdatedAt());
+
+            out.writeInt(recordBytes.size());
+            recordBytes.writeTo(out);
+            pageCount++;
+            observe(product);
+        }
+
+        public void endPage(boolean cursorPaged, String nextCursor, boolean last) throws IOException {
+            long length = counter.written - pageOffset;
+            if (counter.written > Integer.MAX_VALUE) {
+                throw new IOException("Catalog snapshot exceeds 2 GB");
+            }
+            pages.add(new Page(pageUrl, pageEtag, pageLastModified, cursorPaged, nextCursor, last,
+                    pageCount, (int) pageOffset, (int) length));
+        }
+
+        /**
+         * Carries an unchanged page over byte for byte, without decoding it.
+         */
+        public void copyPage(CatalogSnapshot snapshot, Page page) throws IOException {
+            beginPage(page.url(), page.etag(), page.lastModified());
+            ByteBuffer records = snapshot.buffer.duplicate().position(page.offset()).limit(page.offset() + page.length());
+            byte[] chunk = new byte[64 * 1024];
+            while (records.hasRemaining()) {
+                int n = Math.min(chunk.length, records.remaining());
+                records.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+            pageCount = page.count();
+            endPage(page.cursorPaged(), page.nextCursor(), page.last());
+        }
+
+        /**
+         * Records an updatedAt for the incremental watermark; products written through
+         * {@link #write} are observed automatically.
+         */
+        public void observe(Product product) {
+            LocalDateTime updatedAt = product.getUpdatedAt();
+            if (updatedAt != null && (watermark == null || updatedAt.isAfter(watermark))) {
+                watermark = updatedAt;
+            }
+        }
+
+        public void commit(long fullSyncedAt) throws IOException {
+            long footerOffset = counter.written;
+            out.writeLong(fullSyncedAt);
+            writeDateTime(out, watermark);
+            out.writeInt(pages.size());
+            for (Page page : pages) {
+                writeString(out, page.url());
+                writeString(out, page.etag());
+                writeString(out, page.lastModified());
+                out.writeByte(page.cursorPaged() ? 1 : 0);
+                writeString(out, page.nextCursor());
+                out.writeByte(page.last() ? 1 : 0);
+                out.writeInt(page.count());
+                out.writeInt(page.offset());
+                out.writeInt(page.length());
+            }
+            out.writeLong(footerOffset);
+            out.close();
+
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() {
+            if (committed) {
+                return;
+            }
+            // Anything short of a complete fetch leaves the previous snapshot in place
+            try {
+                out.close();
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                logger.error("Failed to discard partial catalog snapshot {}: {}", tempFile, e.getMessage());
+            }
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NULL_LENGTH);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+            if (value == null) {
+                out.writeByte(0);
+                return;
+            }
+            out.writeByte(1);
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long written;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+        }
+    }
+}
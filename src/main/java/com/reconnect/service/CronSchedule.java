@@ -0,0 +1,119 @@
+package com.reconnect.service;
+
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * Five-field cron expression: minute, hour, day of month, month, day of week (0 or 7 = Sunday).
+ * Fields accept wildcards, numbers, ranges ({@code 8-18}), steps ({@code 0-59/15}) and comma lists.
+ */
+public class CronSchedule {
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean dayOfMonthRestricted;
+    private final boolean dayOfWeekRestricted;
+
+    private CronSchedule(String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression must have 5 fields: " + expression);
+        }
+
+        this.expression = expression;
+        this.minutes = parseField(fields[0], 0, 59);
+        this.hours = parseField(fields[1], 0, 23);
+        this.daysOfMonth = parseField(fields[2], 1, 31);
+        this.months = parseField(fields[3], 1, 12);
+        this.daysOfWeek = parseField(fields[4], 0, 7);
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        this.dayOfMonthRestricted = !fields[2].equals("*");
+        this.dayOfWeekRestricted = !fields[4].equals("*");
+    }
+
+    public static CronSchedule parse(String expression) {
+        return new CronSchedule(expression);
+    }
+
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = time.plusYears(5);
+
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!dayMatches(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+
+        throw new IllegalStateException("Cron expression never fires: " + expression);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private boolean dayMatches(ZonedDateTime time) {
+        boolean dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+        boolean dayOfWeek = daysOfWeek.get(time.getDayOfWeek() == DayOfWeek.SUNDAY ? 0 : time.getDayOfWeek().getValue());
+
+        // Standard cron: when both day fields are restricted, either one may match
+        if (dayOfMonthRestricted && dayOfWeekRestricted) {
+            return dayOfMonth || dayOfWeek;
+        }
+        return dayOfMonth && dayOfWeek;
+    }
+
+    private static BitSet parseField(String field, int min, int max) {
+        BitSet values = new BitSet(max + 1);
+
+        for (String part : field.split(",")) {
+            int step = 1;
+            String range = part;
+
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = Integer.parseInt(part.substring(slash + 1));
+                range = part.substring(0, slash);
+            }
+
+            int from;
+            int to;
+            if (range.equals("*")) {
+                from = min;
+                to = max;
+            } else if (range.contains("-")) {
+                String[] bounds = range.split("-", 2);
+                from = Integer.parseInt(bounds[0]);
+                to = Integer.parseInt(bounds[1]);
+            } else {
+                from = Integer.parseInt(range);
+                to = slash >= 0 ? max : from;
+            }
+
+            if (from < min || to > max || from > to || step < 1) {
+                throw new IllegalArgumentException("Invalid cron field '" + field + "'");
+            }
+            for (int value = from; value <= to; value += step) {
+                values.set(value);
+            }
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,184 @@
+package com.reconnect.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class EmbeddedPriceExtractor {
+    private static final String SKU_PRICE_LIST_MARKER = "\"skuPriceList\"";
+    private static final String[] PRICE_FIELDS = {"skuActivityAmount", "skuAmount"};
+    private static final String[] PRICE_TEXT_FIELDS = {"actSkuCalPrice", "skuCalPrice"};
+    private static final String[] SKU_ID_FIELDS = {"skuIdStr", "skuId"};
+
+    private static final Map<String, String> PAGE_HEADERS = Map.of(
+            "User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/121.0.0.0 Safari/537.36",
+            "Accept", "text/html,application/xhtml+xml",
+            "Accept-Language", "pt-BR,pt;q=0.9,en-US;q=0.8,en;q=0.7",
+            "Cookie", "aep_usuc_f=site=bra&c_tp=BRL&region=BR&b_locale=pt_BR"
+    );
+
+    private final HttpService httpService;
+    private final JsonMapper jsonMapper;
+    private final PriceTextParser priceTextParser;
+    private final LoggingService logger;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public EmbeddedPriceExtractor(HttpService httpService) {
+        this.logger = new LoggingService(EmbeddedPriceExtractor.class);
+        this.httpService = httpService;
+        this.priceTextParser = PriceTextParser.fromConfig();
+        // Inline page data is a JS literal, so accept the usual deviations from strict JSON
+        this.jsonMapper = JsonMapper.builder()
+                .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+                .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+                .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+                .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                .build();
+    }
+
+    public Map<String, Long> getPrices(String listingLink) {
+        try {
+            String html = httpService.get(listingLink, PAGE_HEADERS);
+            Map<String, Long> prices = extractPrices(html);
+
+            if (!prices.isEmpty()) {
+                hits.incrementAndGet();
+                logger.info("Found embedded prices for {} sku(s) at {}", prices.size(), listingLink);
+            } else {
+                misses.incrementAndGet();
+                logger.debug("No embedded prices at {}", listingLink);
+            }
+            return prices;
+        } catch (Exception e) {
+            misses.incrementAndGet();
+            logger.debug("Fast path failed for {}: {}", listingLink, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    public OptionalLong extractPrice(String html, String skuId) {
+        return priceForSku(extractPrices(html), skuId);
+    }
+
+    public Map<String, Long> extractPrices(String html) {
+        Map<String, Long> prices = new HashMap<>();
+        int markerIndex = html.indexOf(SKU_PRICE_LIST_MARKER);
+
+        while (markerIndex >= 0) {
+            int arrayStart = html.indexOf('[', markerIndex + SKU_PRICE_LIST_MARKER.length());
+            if (arrayStart < 0) {
+                break;
+            }
+
+            try {
+                collectSkuPrices(readArrayAt(html, arrayStart), prices);
+            } catch (IOException e) {
+                logger.debug("Skipping unparseable skuPriceList at offset {}: {}", arrayStart, e.getMessage());
+            }
+
+            markerIndex = html.indexOf(SKU_PRICE_LIST_MARKER, arrayStart);
+        }
+
+        return prices;
+    }
+
+    public static OptionalLong priceForSku(Map<String, Long> prices, String skuId) {
+        if (skuId == null || skuId.isBlank()) {
+            // Without a SKU only an unambiguous listing (or a price read for "no SKU") can answer
+            Long unkeyed = prices.get("");
+            if (unkeyed != null) {
+                return OptionalLong.of(unkeyed);
+            }
+            return prices.values().stream().distinct().count() == 1
+                    ? OptionalLong.of(prices.values().iterator().next())
+                    : OptionalLong.empty();
+        }
+
+        Long price = prices.get(skuId);
+        return price != null ? OptionalLong.of(price) : OptionalLong.empty();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public void logSummaryAndReset() {
+        long runHits = hits.getAndSet(0);
+        long runMisses = misses.getAndSet(0);
+        long total = runHits + runMisses;
+
+        logger.info("Fast path: {} hits, {} misses ({}% hit rate)",
+                runHits, runMisses, total == 0 ? 0 : runHits * 100 / total);
+    }
+
+    private JsonNode readArrayAt(String html, int arrayStart) throws IOException {
+        StringReader reader = new StringReader(html);
+        reader.skip(arrayStart);
+
+        // The parser stops at the end of the array, so the rest of the page is never tokenized
+        try (JsonParser parser = jsonMapper.createParser(reader)) {
+            return jsonMapper.readTree(parser);
+        }
+    }
+
+    private void collectSkuPrices(JsonNode skuPriceList, Map<String, Long> prices) {
+        if (skuPriceList == null || !skuPriceList.isArray()) {
+            return;
+        }
+
+        for (JsonNode sku : skuPriceList) {
+            OptionalLong price = readPrice(sku.path("skuVal"));
+            if (price.isEmpty()) {
+                continue;
+            }
+            for (String idField : SKU_ID_FIELDS) {
+                String skuId = sku.path(idField).asText();
+                if (!skuId.isBlank()) {
+                    prices.putIfAbsent(skuId, price.getAsLong());
+                }
+            }
+        }
+    }
+
+    private OptionalLong readPrice(JsonNode skuVal) {
+        for (String field : PRICE_FIELDS) {
+            JsonNode value = skuVal.path(field).path("value");
+            if (value.isNumber()) {
+                long cents = value.decimalValue().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+                if (priceTextParser.isInRange(cents)) {
+                    return OptionalLong.of(cents);
+                }
+            }
+        }
+
+        for (String field : PRICE_TEXT_FIELDS) {
+            String text = skuVal.path(field).asText();
+            long cents = priceTextParser.parseCents(text);
+            if (cents != PriceTextParser.NOT_FOUND) {
+                return OptionalLong.of(cents);
+            }
+            if (!text.isBlank()) {
+                logger.debug("Ignoring unparseable {}: {}", field, text);
+            }
+        }
+
+        return OptionalLong.empty();
+    }
+}
@@ -0,0 +1,114 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+
+@Slf4j
+public class HostRateLimiter {
+    private final double initialPerMinute;
+    private final double minPerMinute;
+    private final double maxPerMinute;
+    private final double increasePerMinute;
+    private final double decreaseFactor;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final LoggingService logger;
+
+    public HostRateLimiter() {
+        this(AppConfig.getInstance().getRateLimitInitialPerMinute(),
+                AppConfig.getInstance().getRateLimitMinPerMinute(),
+                AppConfig.getInstance().getRateLimitMaxPerMinute(),
+                AppConfig.getInstance().getRateLimitIncreasePerMinute(),
+                AppConfig.getInstance().getRateLimitDecreaseFactor());
+    }
+
+    public HostRateLimiter(double initialPerMinute, double minPerMinute, double maxPerMinute,
+                           double increasePerMinute, double decreaseFactor) {
+        this.logger = new LoggingService(HostRateLimiter.class);
+        this.initialPerMinute = initialPerMinute;
+        this.minPerMinute = minPerMinute;
+        this.maxPerMinute = maxPerMinute;
+        this.increasePerMinute = increasePerMinute;
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public void acquire(String url) throws InterruptedException {
+        long waitNanos = bucket(url).reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    public void onSuccess(String url) {
+        // Additive increase while pages load cleanly
+        bucket(url).adjust(rate -> Math.min(maxPerMinute, rate + increasePerMinute));
+    }
+
+    public void onFailure(String url) {
+        // Multiplicative decrease on errors or challenge pages
+        double rate = bucket(url).adjust(r -> Math.max(minPerMinute, r * decreaseFactor));
+        logger.info("Backing off {} to {} requests/min", hostOf(url), String.format("%.1f", rate));
+    }
+
+    public double getRatePerMinute(String url) {
+        return bucket(url).ratePerMinute();
+    }
+
+    private TokenBucket bucket(String url) {
+        return buckets.computeIfAbsent(hostOf(url), host -> new TokenBucket(initialPerMinute));
+    }
+
+    static String hostOf(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+
+        int end = start;
+        while (end < url.length() && "/?#:".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        return url.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static class TokenBucket {
+        private double ratePerMinute;
+        private double tokens = 1;
+        private long lastRefillNanos = System.nanoTime();
+
+        TokenBucket(double ratePerMinute) {
+            this.ratePerMinute = ratePerMinute;
+        }
+
+        synchronized long reserve() {
+            refill();
+            tokens -= 1;
+            if (tokens >= 0) {
+                return 0;
+            }
+            // Tokens go negative to queue the caller behind earlier reservations
+            return (long) (-tokens * TimeUnit.MINUTES.toNanos(1) / ratePerMinute);
+        }
+
+        synchronized double adjust(DoubleUnaryOperator change) {
+            refill();
+            ratePerMinute = change.applyAsDouble(ratePerMinute);
+            return ratePerMinute;
+        }
+
+        synchronized double ratePerMinute() {
+            return ratePerMinute;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            double elapsedMinutes = (now - lastRefillNanos) / (double) TimeUnit.MINUTES.toNanos(1);
+            // Burst of one: an idle host does not bank more than a single request
+            tokens = Math.min(1, tokens + elapsedMinutes * ratePerMinute);
+            lastRefillNanos = now;
+        }
+    }
+}
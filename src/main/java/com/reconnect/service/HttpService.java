@@ -1,94 +1,312 @@
 package com.reconnect.service;
 
+import com.reconnect.config.AppConfig;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 @Slf4j
 public class HttpService {
     private final HttpClient httpClient;
+    private final RequestOptions defaultOptions;
+    private final RetryBackoff retryBackoff;
+    private final ExecutorService bodyReaders;
+    private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private int availablePermits;
 
     public HttpService() {
+        this(AppConfig.getInstance().getHttpMaxConcurrentRequests(),
+                new RequestOptions(Duration.ofMillis(AppConfig.getInstance().getHttpTimeoutMillis()),
+                        AppConfig.getInstance().getHttpMaxRetries()));
+    }
+
+    public HttpService(int maxConcurrentRequests, RequestOptions defaultOptions) {
         this.httpClient = HttpClient.newBuilder()
                 .version(HttpClient.Version.HTTP_2)
                 .connectTimeout(Duration.ofSeconds(10))
                 .build();
+        this.defaultOptions = defaultOptions;
+        this.retryBackoff = new RetryBackoff();
+        // Bodies are read with blocking streams; virtual threads keep that off the client's own threads
+        this.bodyReaders = Executors.newVirtualThreadPerTaskExecutor();
+        this.availablePermits = maxConcurrentRequests;
+    }
+
+    public RequestOptions defaultOptions() {
+        return defaultOptions;
     }
 
     public String get(String url, Map<String, String> headers) {
-        try {
-            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                    .GET()
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(30));
+        return await(getAsync(url, headers, defaultOptions), "GET", url);
+    }
+
+    public InputStream getStream(String url, Map<String, String> headers) {
+        return await(getStreamAsync(url, headers, defaultOptions), "GET", url);
+    }
+
+    public Response getResponse(String url, Map<String, String> headers) {
+        return await(getResponseAsync(url, headers, defaultOptions), "GET", url);
+    }
 
-            if (headers != null) {
-                headers.forEach(requestBuilder::header);
+    public String post(String url, String body, Map<String, String> headers) {
+        return await(postAsync(url, body, headers, defaultOptions), "POST", url);
+    }
+
+    public String put(String url, String body, Map<String, String> headers) {
+        return await(sendAsync("PUT", url, body.getBytes(StandardCharsets.UTF_8), headers, defaultOptions,
+                HttpService::readString), "PUT", url);
+    }
+
+    public CompletableFuture<String> getAsync(String url, Map<String, String> headers, RequestOptions options) {
+        return sendAsync("GET", url, null, headers, options, HttpService::readString);
+    }
+
+    public CompletableFuture<InputStream> getStreamAsync(String url, Map<String, String> headers,
+                                                         RequestOptions options) {
+        return send("GET", url, null, headers, options, 0).thenApply(Response::body);
+    }
+
+    /**
+     * Like {@link #getStreamAsync} but keeps the status and headers, for conditional requests where a
+     * 304 and the validators matter. The caller must close the response.
+     */
+    public CompletableFuture<Response> getResponseAsync(String url, Map<String, String> headers,
+                                                        RequestOptions options) {
+        return send("GET", url, null, headers, options, 0);
+    }
+
+    public CompletableFuture<String> postAsync(String url, String body, Map<String, String> headers,
+                                               RequestOptions options) {
+        return sendAsync("POST", url, body.getBytes(StandardCharsets.UTF_8), headers, options,
+                HttpService::readString);
+    }
+
+    public CompletableFuture<String> putAsync(String url, byte[] body, Map<String, String> headers,
+                                              RequestOptions options) {
+        return sendAsync("PUT", url, body, headers, options, HttpService::readString);
+    }
+
+    public <T> CompletableFuture<T> sendAsync(String method, String url, byte[] body, Map<String, String> headers,
+                                              RequestOptions options, BodyReader<T> reader) {
+        // The reader runs on the decoded stream, so Jackson can parse straight off the wire
+        return send(method, url, body, headers, options, 0).thenApply(response -> {
+            try (InputStream in = response.body()) {
+                return reader.read(in);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private CompletableFuture<Response> send(String method, String url, byte[] body, Map<String, String> headers,
+                                                RequestOptions options, int attempt) {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(options.timeout())
+                .header("Accept-Encoding", "gzip, deflate")
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        if (headers != null) {
+            headers.forEach(requestBuilder::setHeader);
+        }
+        HttpRequest request = requestBuilder.build();
+
+        CompletableFuture<Response> result = acquirePermit()
+                .thenCompose(ignored -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        releasePermit();
+                        throw new CompletionException(unwrap(error));
+                    }
+
+                    log.debug("{} request to {} returned status code: {}", method, url, response.statusCode());
+                    if (response.statusCode() >= 400) {
+                        closeQuietly(response.body());
+                        releasePermit();
+                        throw new CompletionException(new HttpStatusException(response.statusCode(), method, url));
+                    }
+                    return response;
+                })
+                .thenApplyAsync(response -> {
+                    try {
+                        return new Response(response.statusCode(), response.headers(), decode(response));
+                    } catch (IOException e) {
+                        closeQuietly(response.body());
+                        releasePermit();
+                        throw new CompletionException(e);
+                    }
+                }, bodyReaders);
+
+        return result.exceptionallyCompose(error -> {
+            Throwable cause = unwrap(error);
+            if (attempt >= options.maxRetries() || !isRetryable(cause)) {
+                return CompletableFuture.failedFuture(cause);
             }
+            long delay = retryBackoff.delayMillis(attempt + 1);
+            log.debug("Retrying {} {} in {} ms after: {}", method, url, delay, cause.getMessage());
+            return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> send(method, url, body, headers, options, attempt + 1));
+        });
+    }
 
-            HttpResponse<String> response = httpClient.send(
-                    requestBuilder.build(),
-                    HttpResponse.BodyHandlers.ofString()
-            );
+    private InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        InputStream body = new PermitReleasingStream(response.body());
+        boolean compressed = encoding.equals("gzip") || encoding.equals("x-gzip") || encoding.equals("deflate");
+        // A 304 or 204 keeps the Content-Encoding of the full response but has no body to inflate
+        if (!compressed || response.statusCode() == 204 || response.statusCode() == 304) {
+            return body;
+        }
 
-            log.debug("GET request to {} returned status code: {}", url, response.statusCode());
-            return response.body();
-        } catch (Exception e) {
-            log.error("Error executing GET request to {}: {}", url, e.getMessage(), e);
-            throw new RuntimeException("Failed to execute GET request", e);
+        // GZIPInputStream reads the header up front and would throw EOFException on an empty body
+        PushbackInputStream peeked = new PushbackInputStream(body, 1);
+        int first = peeked.read();
+        if (first < 0) {
+            return peeked;
         }
+        peeked.unread(first);
+        return encoding.equals("deflate") ? new InflaterInputStream(peeked) : new GZIPInputStream(peeked, 16 * 1024);
     }
 
-    public String post(String url, String body, Map<String, String> headers) {
-        try {
-            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                    .POST(HttpRequest.BodyPublishers.ofString(body))
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(30));
+    private synchronized CompletableFuture<Void> acquirePermit() {
+        if (availablePermits > 0) {
+            availablePermits--;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        waiting.addLast(permit);
+        return permit;
+    }
 
-            if (headers != null) {
-                headers.forEach(requestBuilder::header);
+    private void releasePermit() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                availablePermits++;
+                return;
             }
+        }
+        // Handed over directly, completed outside the lock so the next request does not start under it
+        next.complete(null);
+    }
 
-            HttpResponse<String> response = httpClient.send(
-                    requestBuilder.build(),
-                    HttpResponse.BodyHandlers.ofString()
-            );
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof HttpStatusException status) {
+            return status.getStatusCode() == 429 || status.getStatusCode() >= 500;
+        }
+        return error instanceof IOException;
+    }
 
-            log.debug("POST request to {} returned status code: {}", url, response.statusCode());
-            return response.body();
-        } catch (Exception e) {
-            log.error("Error executing POST request to {}: {}", url, e.getMessage(), e);
-            throw new RuntimeException("Failed to execute POST request", e);
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
         }
+        return error;
     }
 
-    public String put(String url, String body, Map<String, String> headers) {
+    private static <T> T await(CompletableFuture<T> future, String method, String url) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            log.error("Error executing {} request to {}: {}", method, url, cause.getMessage(), cause);
+            throw new RuntimeException("Failed to execute " + method + " request", cause);
+        }
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void closeQuietly(InputStream in) {
         try {
-            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                    .PUT(HttpRequest.BodyPublishers.ofString(body))
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(30));
+            in.close();
+        } catch (IOException e) {
+            log.debug("Error closing response body: {}", e.getMessage());
+        }
+    }
 
-            if (headers != null) {
-                headers.forEach(requestBuilder::header);
-            }
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    public record Response(int statusCode, HttpHeaders headers, InputStream body) implements Closeable {
+        public String header(String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    public record RequestOptions(Duration timeout, int maxRetries) {
+        public RequestOptions withTimeout(Duration timeout) {
+            return new RequestOptions(timeout, maxRetries);
+        }
+
+        public RequestOptions withMaxRetries(int maxRetries) {
+            return new RequestOptions(timeout, maxRetries);
+        }
+    }
 
-            HttpResponse<String> response = httpClient.send(
-                    requestBuilder.build(),
-                    HttpResponse.BodyHandlers.ofString()
-            );
+    public static class HttpStatusException extends IOException {
+        private final int statusCode;
 
-            log.debug("PUT request to {} returned status code: {}", url, response.statusCode());
-            return response.body();
-        } catch (Exception e) {
-            log.error("Error executing PUT request to {}: {}", url, e.getMessage(), e);
-            throw new RuntimeException("Failed to execute PUT request", e);
+        public HttpStatusException(int statusCode, String method, String url) {
+            super(method + " " + url + " returned status code " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+
+    private class PermitReleasingStream extends FilterInputStream {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                // The slot is held until the body is consumed, not just until headers arrive
+                if (released.compareAndSet(false, true)) {
+                    releasePermit();
+                }
+            }
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package com.reconnect.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+@Slf4j
+public class LogAlertSink implements AlertSink {
+    private final LoggingService logger;
+
+    public LogAlertSink() {
+        this.logger = new LoggingService(LogAlertSink.class);
+    }
+
+    @Override
+    public List<String> send(String message, List<String> recipients) {
+        logger.info("ALERT: {}", message);
+        return List.of();
+    }
+}
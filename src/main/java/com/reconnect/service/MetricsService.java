@@ -0,0 +1,160 @@
+package com.reconnect.service;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+@Slf4j
+public class MetricsService {
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private static MetricsService instance;
+
+    private final Map<String, LatencyHistogram> stages = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, IntSupplier> queueDepths = new ConcurrentHashMap<>();
+    private final LoggingService logger;
+    private HttpServer server;
+
+    private MetricsService() {
+        this.logger = new LoggingService(MetricsService.class);
+    }
+
+    public static synchronized MetricsService getInstance() {
+        if (instance == null) {
+            instance = new MetricsService();
+        }
+        return instance;
+    }
+
+    public Span span(String stage) {
+        return new Span(stages.computeIfAbsent(stage, name -> new LatencyHistogram()), System.nanoTime());
+    }
+
+    public void increment(String counter) {
+        counters.computeIfAbsent(counter, name -> new LongAdder()).increment();
+    }
+
+    public void increment(String counter, long amount) {
+        counters.computeIfAbsent(counter, name -> new LongAdder()).add(amount);
+    }
+
+    public void queueDepth(String queue, IntSupplier depth) {
+        // The latest run's queue replaces the previous one under the same name
+        queueDepths.put(queue, depth);
+    }
+
+    public LatencyHistogram histogram(String stage) {
+        return stages.computeIfAbsent(stage, name -> new LatencyHistogram());
+    }
+
+    public Map<String, LatencyHistogram> getStages() {
+        return new TreeMap<>(stages);
+    }
+
+    public synchronized void startServer(String bindAddress, int port) {
+        if (server != null) {
+            return;
+        }
+
+        try {
+            // Loopback unless told otherwise: the endpoint has no authentication
+            InetAddress address = bindAddress == null || bindAddress.isEmpty()
+                    ? InetAddress.getLoopbackAddress()
+                    : InetAddress.getByName(bindAddress);
+            server = HttpServer.create(new InetSocketAddress(address, port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = renderPrometheus().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            logger.info("Serving metrics on http://{}:{}/metrics", address.getHostAddress(), port);
+        } catch (IOException e) {
+            logger.error("Failed to start metrics endpoint on port {}: {}", port, e.getMessage());
+            server = null;
+        }
+    }
+
+    public synchronized void stopServer() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    public String renderPrometheus() {
+        StringBuilder out = new StringBuilder();
+
+        out.append("# TYPE price_updater_stage_seconds summary\n");
+        new TreeMap<>(stages).forEach((stage, histogram) -> {
+            for (double quantile : QUANTILES) {
+                out.append("price_updater_stage_seconds{stage=\"").append(stage)
+                        .append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(histogram.percentileMicros(quantile))).append('\n');
+            }
+            out.append("price_updater_stage_seconds_sum{stage=\"").append(stage).append("\"} ")
+                    .append(seconds(histogram.getSumMicros())).append('\n');
+            out.append("price_updater_stage_seconds_count{stage=\"").append(stage).append("\"} ")
+                    .append(histogram.getCount()).append('\n');
+        });
+
+        out.append("# TYPE price_updater_events_total counter\n");
+        new TreeMap<>(counters).forEach((counter, value) ->
+                out.append("price_updater_events_total{event=\"").append(counter).append("\"} ")
+                        .append(value.sum()).append('\n'));
+
+        out.append("# TYPE price_updater_queue_depth gauge\n");
+        new TreeMap<>(queueDepths).forEach((queue, depth) ->
+                out.append("price_updater_queue_depth{queue=\"").append(queue).append("\"} ")
+                        .append(depth.getAsInt()).append('\n'));
+
+        return out.toString();
+    }
+
+    public void logSummary() {
+        new TreeMap<>(stages).forEach((stage, histogram) ->
+                logger.info("Stage {}: count={} p50={}ms p95={}ms p99={}ms max={}ms",
+                        stage,
+                        histogram.getCount(),
+                        histogram.percentileMicros(0.5) / 1000,
+                        histogram.percentileMicros(0.95) / 1000,
+                        histogram.percentileMicros(0.99) / 1000,
+                        histogram.getMaxMicros() / 1000));
+
+        new TreeMap<>(counters).forEach((counter, value) ->
+                logger.info("Counter {}: {}", counter, value.sum()));
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+
+    public static class Span implements AutoCloseable {
+        private final LatencyHistogram histogram;
+        private final long startNanos;
+
+        private Span(LatencyHistogram histogram, long startNanos) {
+            this.histogram = histogram;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            histogram.recordNanos(System.nanoTime() - startNanos);
+        }
+    }
+}
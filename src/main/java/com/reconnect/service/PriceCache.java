@@ -0,0 +1,202 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class PriceCache implements AutoCloseable {
+    // Logged for an evicted key, so replaying the log does not bring it back
+    private static final long EVICTED = -1;
+
+    private final boolean enabled;
+    private final Path file;
+    private final long ttlMillis;
+    private final int maxEntries;
+    // Oldest fetch first: a put moves its key to the end, so eviction always takes the head
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final LoggingService logger;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private DataOutputStream appendLog;
+    private long logRecords;
+
+    public PriceCache() {
+        this(AppConfig.getInstance().isPriceCacheEnabled(),
+                Path.of(AppConfig.getInstance().getPriceCacheFile()),
+                Duration.ofMinutes(AppConfig.getInstance().getPriceCacheTtlMinutes()),
+                AppConfig.getInstance().getPriceCacheMaxEntries());
+    }
+
+    public PriceCache(boolean enabled, Path file, Duration ttl, int maxEntries) {
+        this.logger = new LoggingService(PriceCache.class);
+        this.enabled = enabled;
+        this.file = file;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+
+        if (enabled) {
+            try {
+                load();
+                compact();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open price cache " + file, e);
+            }
+        }
+    }
+
+    public synchronized OptionalLong get(String key) {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+
+        Entry entry = entries.get(key);
+        if (entry == null || isExpired(entry, System.currentTimeMillis())) {
+            misses.incrementAndGet();
+            return OptionalLong.empty();
+        }
+
+        hits.incrementAndGet();
+        return OptionalLong.of(entry.priceInCents());
+    }
+
+    public synchronized void put(String key, long priceInCents) {
+        if (!enabled) {
+            return;
+        }
+
+        Entry entry = new Entry(priceInCents, System.currentTimeMillis());
+        entries.remove(key);
+        entries.put(key, entry);
+
+        try {
+            append(key, entry);
+            for (String evicted : evictOldest()) {
+                append(evicted, new Entry(EVICTED, entry.fetchedAt()));
+            }
+            if (logRecords > 2L * entries.size() + 1000) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to persist cached price for {}: {}", key, e.getMessage());
+        }
+    }
+
+    public synchronized void logSummaryAndReset() {
+        if (enabled) {
+            logger.info("Price cache: {} hits, {} misses, {} entries",
+                    hits.getAndSet(0), misses.getAndSet(0), entries.size());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (appendLog != null) {
+            try {
+                appendLog.close();
+            } catch (IOException e) {
+                logger.error("Error closing price cache: {}", e.getMessage());
+            }
+            appendLog = null;
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long records = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                long fetchedAt = in.readLong();
+                long priceInCents = in.readLong();
+                String key = in.readUTF();
+                records++;
+
+                Entry entry = new Entry(priceInCents, fetchedAt);
+                entries.remove(key);
+                if (priceInCents != EVICTED && !isExpired(entry, now)) {
+                    entries.put(key, entry);
+                }
+            }
+        } catch (EOFException e) {
+            // End of log, or a record torn by a crash; everything before it is intact
+        }
+
+        // A smaller price.cache.max.entries than last run is applied here, before compact() rewrites the log
+        evictOldest();
+        logger.info("Loaded {} fresh cached prices from {} log records", entries.size(), records);
+    }
+
+    private void append(String key, Entry entry) throws IOException {
+        if (appendLog == null) {
+            appendLog = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+
+        appendLog.writeLong(entry.fetchedAt());
+        appendLog.writeLong(entry.priceInCents());
+        appendLog.writeUTF(key);
+        appendLog.flush();
+        logRecords++;
+    }
+
+    private List<String> evictOldest() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<String> oldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && oldest.hasNext()) {
+            evicted.add(oldest.next());
+            oldest.remove();
+        }
+        return evicted;
+    }
+
+    private synchronized void compact() throws IOException {
+        close();
+
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> isExpired(entry, now));
+
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                out.writeLong(e.getValue().fetchedAt());
+                out.writeLong(e.getValue().priceInCents());
+                out.writeUTF(e.getKey());
+            }
+        }
+
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logRecords = entries.size();
+        logger.debug("Compacted price cache to {} entries", logRecords);
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.fetchedAt() > ttlMillis;
+    }
+
+    private record Entry(long priceInCents, long fetchedAt) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import com.reconnect.domain.Product;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class PriceChangeDetector {
+    private static final int ANOMALY_REFERENCE_POINTS = 5;
+
+    private final PriceHistoryStore priceHistory;
+    private final long minAbsoluteChangeCents;
+    private final double minPercentChange;
+    private final Duration maxUnchangedAge;
+    private final double anomalyFactor;
+    private final int anomalyConfirmations;
+    private final LoggingService logger;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PriceChangeDetector(PriceHistoryStore priceHistory) {
+        this(priceHistory,
+                AppConfig.getInstance().getMinPriceChangeCents(),
+                AppConfig.getInstance().getMinPriceChangePercent(),
+                Duration.ofHours(AppConfig.getInstance().getMaxUnchangedPriceAgeHours()),
+                AppConfig.getInstance().getPriceAnomalyFactor(),
+                AppConfig.getInstance().getPriceAnomalyConfirmations());
+    }
+
+    public PriceChangeDetector(PriceHistoryStore priceHistory, long minAbsoluteChangeCents, double minPercentChange,
+                               Duration maxUnchangedAge, double anomalyFactor, int anomalyConfirmations) {
+        this.logger = new LoggingService(PriceChangeDetector.class);
+        this.priceHistory = priceHistory;
+        this.minAbsoluteChangeCents = minAbsoluteChangeCents;
+        this.minPercentChange = minPercentChange;
+        this.maxUnchangedAge = maxUnchangedAge;
+        this.anomalyFactor = anomalyFactor;
+        this.anomalyConfirmations = anomalyConfirmations;
+    }
+
+    /**
+     * True for a price too far off both the product's recent history and its last accepted price
+     * (or its API price when there is no history yet) to be trusted, such as a 100x jump from a
+     * misread element. A rejected fresh scrape is kept as pending in the history, and the same
+     * price scraped {@code anomalyConfirmations} times in a row, across runs, is accepted as a real
+     * change. Prices that did not come from a scrape of this product, like a cached sibling SKU
+     * price, are only checked: they are neither counted as a confirmation nor as a rejection.
+     */
+    public boolean isAnomalous(Product product, long newPriceInCents, boolean scraped) {
+        if (anomalyFactor <= 1 || newPriceInCents <= 0) {
+            return false;
+        }
+
+        OptionalLong median = priceHistory.recentMedian(product.getId(), ANOMALY_REFERENCE_POINTS);
+        long referenceCents;
+        if (median.isPresent()) {
+            // The last price is trusted too, since it was either plausible or confirmed
+            if (isPlausible(newPriceInCents, median.getAsLong())
+                    || isPlausible(newPriceInCents, priceHistory.lastPrice(product.getId()).getAsLong())) {
+                return false;
+            }
+            referenceCents = median.getAsLong();
+        } else {
+            referenceCents = product.getPrice() == null ? 0 : product.getPrice().setScale(0, RoundingMode.HALF_UP).longValue();
+            if (referenceCents <= 0 || isPlausible(newPriceInCents, referenceCents)) {
+                return false;
+            }
+        }
+
+        if (!scraped) {
+            return true;
+        }
+
+        int seen = priceHistory.pendingCount(product.getId(), newPriceInCents) + 1;
+        if (seen >= anomalyConfirmations) {
+            logger.info("Accepting price {} cents for product {} after {} identical scrapes (was around {} cents)",
+                    newPriceInCents, product.getId(), seen, referenceCents);
+            return false;
+        }
+        priceHistory.recordPending(product.getId(), Instant.now(), newPriceInCents);
+
+        rejected.incrementAndGet();
+        logger.error("Rejecting price {} cents for product {}: {}x its recent price of {} cents",
+                newPriceInCents, product.getId(),
+                String.format("%.1f", (double) newPriceInCents / referenceCents), referenceCents);
+        return true;
+    }
+
+    public boolean shouldWrite(Product product, long newPriceInCents) {
+        boolean write = isSignificantChange(product, newPriceInCents) || isStale(product);
+
+        if (write) {
+            written.incrementAndGet();
+        } else {
+            suppressed.incrementAndGet();
+            logger.debug("Suppressing price update for product {}: {} -> {} cents",
+                    product.getId(), product.getPrice(), newPriceInCents);
+        }
+        return write;
+    }
+
+    public void logSummaryAndReset() {
+        logger.info("Price changes: {} written, {} suppressed as unchanged, {} rejected as anomalous",
+                written.getAndSet(0), suppressed.getAndSet(0), rejected.getAndSet(0));
+    }
+
+    private boolean isSignificantChange(Product product, long newPriceInCents) {
+        if (product.getPrice() == null) {
+            return true;
+        }
+
+        // The API reports prices in the same cents unit that updateProductPrice writes
+        long currentPriceInCents = product.getPrice().setScale(0, RoundingMode.HALF_UP).longValue();
+        long delta = Math.abs(newPriceInCents - currentPriceInCents);
+
+        if (delta == 0) {
+            return false;
+        }
+        if (delta >= minAbsoluteChangeCents) {
+            return true;
+        }
+        return minPercentChange > 0
+                && currentPriceInCents != 0
+                && delta * 100.0 / Math.abs(currentPriceInCents) >= minPercentChange;
+    }
+
+    private boolean isPlausible(long priceInCents, long referenceCents) {
+        double ratio = (double) priceInCents / referenceCents;
+        return ratio <= anomalyFactor && ratio >= 1 / anomalyFactor;
+    }
+
+    private boolean isStale(Product product) {
+        if (maxUnchangedAge.isZero() || product.getUpdatedAt() == null) {
+            return false;
+        }
+        return product.getUpdatedAt().isBefore(LocalDateTime.now().minus(maxUnchangedAge));
+    }
+}
@@ -0,0 +1,557 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Append-only price history per product id, kept in numbered segment files under one directory.
+ *
+ * <pre>
+ * segment: "RPH2" | supersedes (long) | blocks...
+ * block:   id length (varint) | id (UTF-8) | point count << 1 | pending flag (varint) | points
+ * point:   zigzag varint delta of epoch seconds | zigzag varint delta of cents
+ * </pre>
+ *
+ * Deltas in a block start from zero, so a block written on every observation holds one absolute
+ * point and a compacted segment holds one block per product with a few bytes per point. Segments
+ * are read and replayed on open into the same delta encoding in memory, so queries never touch the
+ * disk. A compacted segment names the highest segment it replaces, which makes a crash
+ * between writing it and deleting the old ones harmless.
+ *
+ * <p>Pending points are scrapes held back as anomalous. They stay out of the series, so they never
+ * move a median or a change rate, and only count towards confirming the same price on a later run;
+ * any accepted point clears them.
+ */
+@Slf4j
+public class PriceHistoryStore implements AutoCloseable {
+    private static final int MAGIC = 0x52504832; // "RPH2"
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".phs";
+    private static final int READ_WINDOW_BYTES = 8 * 1024 * 1024;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int compactAfterSegments;
+    private final Duration retention;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final byte[] scratch = new byte[32];
+    private final LoggingService logger;
+
+    private long nextSegment;
+    private int sealedSegments;
+    private OutputStream active;
+    private long activeBytes;
+
+    public PriceHistoryStore(Path directory, long segmentBytes, int compactAfterSegments, Duration retention) {
+        this.logger = new LoggingService(PriceHistoryStore.class);
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compactAfterSegments = compactAfterSegments;
+        this.retention = retention;
+
+        try {
+            Files.createDirectories(directory);
+            load();
+            if (sealedSegments >= compactAfterSegments) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open price history " + directory, e);
+        }
+    }
+
+    public static PriceHistoryStore fromConfig() {
+        AppConfig config = AppConfig.getInstance();
+        return new PriceHistoryStore(
+                Path.of(config.getPriceHistoryDirectory()),
+                config.getPriceHistorySegmentMb() * 1024 * 1024,
+                config.getPriceHistoryCompactSegments(),
+                Duration.ofDays(config.getPriceHistoryRetentionDays())
+        );
+    }
+
+    public synchronized void record(String productId, Instant at, long priceInCents) {
+        series.computeIfAbsent(productId, id -> new Series()).append(at.getEpochSecond(), priceInCents);
+
+        try {
+            appendBlock(productId, at.getEpochSecond(), priceInCents, false);
+        } catch (IOException e) {
+            logger.error("Failed to persist price history for {}: {}", productId, e.getMessage());
+        }
+    }
+
+    /**
+     * Keeps a rejected scrape as pending, so identical scrapes on later runs can confirm it.
+     */
+    public synchronized void recordPending(String productId, Instant at, long priceInCents) {
+        series.computeIfAbsent(productId, id -> new Series()).appendPending(at.getEpochSecond(), priceInCents);
+
+        try {
+            appendBlock(productId, at.getEpochSecond(), priceInCents, true);
+        } catch (IOException e) {
+            logger.error("Failed to persist pending price for {}: {}", productId, e.getMessage());
+        }
+    }
+
+    /**
+     * How many scrapes in a row since the last accepted point came back with exactly
+     * {@code priceInCents} and were held back as pending.
+     */
+    public int pendingCount(String productId, long priceInCents) {
+        Series s = series.get(productId);
+        return s == null ? 0 : s.pendingCount(priceInCents);
+    }
+
+    /**
+     * Points of {@code productId} with {@code from <= time < to}, oldest first.
+     */
+    public void scan(String productId, Instant from, Instant to, PricePointConsumer consumer) {
+        Series s = series.get(productId);
+        if (s != null) {
+            s.scan(from.getEpochSecond(), to.getEpochSecond(), consumer);
+        }
+    }
+
+    public OptionalLong lastPrice(String productId) {
+        Series s = series.get(productId);
+        return s == null ? OptionalLong.empty() : s.lastPrice();
+    }
+
+    /**
+     * Median of the last {@code points} prices, robust against the odd bad scrape already in history.
+     */
+    public OptionalLong recentMedian(String productId, int points) {
+        Series s = series.get(productId);
+        if (s == null) {
+            return OptionalLong.empty();
+        }
+        long[] recent = s.recent(points);
+        if (recent.length == 0) {
+            return OptionalLong.empty();
+        }
+        Arrays.sort(recent);
+        return OptionalLong.of(recent[recent.length / 2]);
+    }
+
+    /**
+     * Share of observations that differed from the one before, Laplace-smoothed so unseen
+     * products rank as "might change" rather than "never changes".
+     */
+    public double changeRate(String productId) {
+        Series s = series.get(productId);
+        return s == null ? 0.5 : s.changeRate();
+    }
+
+    public int productCount() {
+        return series.size();
+    }
+
+    /**
+     * Rewrites every segment into one, a block per product, dropping points past the retention.
+     */
+    public synchronized void compact() throws IOException {
+        closeActive();
+
+        long supersedes = nextSegment - 1;
+        long cutoff = retention.isZero() ? Long.MIN_VALUE : Instant.now().minus(retention).getEpochSecond();
+        long points = 0;
+
+        Path compacted = directory.resolve(segmentName(nextSegment) + ".tmp");
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            writeHeader(out, supersedes);
+
+            for (Map.Entry<String, Series> entry : series.entrySet()) {
+                Series trimmed = entry.getValue().since(cutoff);
+                if (trimmed.count == 0 && trimmed.pendingSeen == 0) {
+                    series.remove(entry.getKey());
+                    continue;
+                }
+                entry.setValue(trimmed);
+                if (trimmed.count > 0) {
+                    writeBlockHeader(out, entry.getKey(), trimmed.count, false);
+                    out.write(trimmed.data, 0, trimmed.length);
+                    points += trimmed.count;
+                }
+                if (trimmed.pendingSeen > 0) {
+                    // Every pending scrape is the same point, so all deltas after the first are zero
+                    writeBlockHeader(out, entry.getKey(), trimmed.pendingSeen, true);
+                    int length = writeVarLong(scratch, 0, zigzag(trimmed.pendingTime));
+                    length = writeVarLong(scratch, length, zigzag(trimmed.pendingCents));
+                    out.write(scratch, 0, length);
+                    for (int i = 1; i < trimmed.pendingSeen; i++) {
+                        out.write(0);
+                        out.write(0);
+                    }
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(compacted, directory.resolve(segmentName(nextSegment)), StandardCopyOption.ATOMIC_MOVE);
+        nextSegment++;
+        for (Path segment : listSegments()) {
+            if (segmentNumber(segment) <= supersedes) {
+                Files.deleteIfExists(segment);
+            }
+        }
+        sealedSegments = 1;
+        logger.info("Compacted price history to {} points for {} products", points, series.size());
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            closeActive();
+        } catch (IOException e) {
+            logger.error("Error closing price history: {}", e.getMessage());
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        long supersededUpTo = -1;
+        for (Path segment : listSegments()) {
+            nextSegment = Math.max(nextSegment, segmentNumber(segment) + 1);
+            OptionalLong supersedes = readSupersedes(segment);
+            if (supersedes.isEmpty()) {
+                // Created right before a crash, before its header reached the disk
+                logger.info("Removing empty price history segment {}", segment.getFileName());
+                Files.deleteIfExists(segment);
+                continue;
+            }
+            supersededUpTo = Math.max(supersededUpTo, supersedes.getAsLong());
+            segments.add(segment);
+        }
+
+        long blocks = 0;
+        for (Path segment : segments) {
+            if (segmentNumber(segment) <= supersededUpTo) {
+                // Left behind by a compaction that finished writing but not deleting
+                Files.deleteIfExists(segment);
+                continue;
+            }
+            blocks += replay(segment);
+            sealedSegments++;
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path leftover : files.filter(path -> path.toString().endsWith(".tmp")).toList()) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+
+        logger.info("Loaded price history for {} products from {} blocks in {} segment(s)",
+                series.size(), blocks, sealedSegments);
+    }
+
+    private long replay(Path segment) throws IOException {
+        long blocks = 0;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = HEADER_BYTES;
+            ByteBuffer window = ByteBuffer.allocate((int) Math.min(size, READ_WINDOW_BYTES));
+
+            while (position < size) {
+                // Read a window at a time into the heap; a mapped segment could not be deleted by compact() on Windows
+                window.clear().limit((int) Math.min(window.capacity(), size - position));
+                while (window.hasRemaining()) {
+                    if (channel.read(window, position + window.position()) < 0) {
+                        throw new IOException("Unexpected end of " + segment);
+                    }
+                }
+                window.flip();
+                long windowBytes = window.limit();
+                int blockStart = 0;
+
+                try {
+                    while (window.hasRemaining()) {
+                        blockStart = window.position();
+                        replayBlock(window);
+                        blocks++;
+                    }
+                    position += windowBytes;
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    if (position + windowBytes >= size) {
+                        // Torn tail from a crash mid-append; everything before it is intact
+                        logger.info("Ignoring {} trailing byte(s) of {}", windowBytes - blockStart, segment.getFileName());
+                        break;
+                    }
+                    if (blockStart == 0) {
+                        // One compacted block larger than the window
+                        window = ByteBuffer.allocate((int) Math.min(size - position, (long) window.capacity() * 2));
+                        continue;
+                    }
+                    position += blockStart;
+                }
+            }
+        }
+        return blocks;
+    }
+
+    private void replayBlock(ByteBuffer in) {
+        int idLength = (int) readVarLong(in);
+        if (idLength <= 0 || idLength > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] id = new byte[idLength];
+        in.get(id);
+        long header = readVarLong(in);
+        boolean pending = (header & 1) == 1;
+        long count = header >>> 1;
+
+        // Decoded in full before it is applied, so a torn block adds nothing
+        long[] times = new long[(int) Math.min(count, in.remaining())];
+        long[] prices = new long[times.length];
+        long time = 0;
+        long cents = 0;
+        for (int i = 0; i < count; i++) {
+            if (i >= times.length) {
+                throw new BufferUnderflowException();
+            }
+            time += unzigzag(readVarLong(in));
+            cents += unzigzag(readVarLong(in));
+            times[i] = time;
+            prices[i] = cents;
+        }
+
+        Series s = series.computeIfAbsent(new String(id, StandardCharsets.UTF_8), key -> new Series());
+        for (int i = 0; i < times.length; i++) {
+            if (pending) {
+                s.appendPending(times[i], prices[i]);
+            } else {
+                s.append(times[i], prices[i]);
+            }
+        }
+    }
+
+    private void appendBlock(String productId, long epochSecond, long priceInCents, boolean pending) throws IOException {
+        if (active == null) {
+            Path segment = directory.resolve(segmentName(nextSegment++));
+            active = new BufferedOutputStream(Files.newOutputStream(segment,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+            writeHeader(active, -1);
+            activeBytes = HEADER_BYTES;
+        }
+
+        activeBytes += writeBlockHeader(active, productId, 1, pending);
+        int length = writeVarLong(scratch, 0, zigzag(epochSecond));
+        length = writeVarLong(scratch, length, zigzag(priceInCents));
+        active.write(scratch, 0, length);
+        active.flush();
+        activeBytes += length;
+
+        if (activeBytes >= segmentBytes) {
+            closeActive();
+            if (sealedSegments >= compactAfterSegments) {
+                compact();
+            }
+        }
+    }
+
+    private void closeActive() throws IOException {
+        if (active != null) {
+            active.close();
+            active = null;
+            sealedSegments++;
+        }
+    }
+
+    private int writeBlockHeader(OutputStream out, String productId, long count, boolean pending) throws IOException {
+        byte[] id = productId.getBytes(StandardCharsets.UTF_8);
+        int length = writeVarLong(scratch, 0, id.length);
+        out.write(scratch, 0, length);
+        out.write(id);
+        int countLength = writeVarLong(scratch, 0, count << 1 | (pending ? 1 : 0));
+        out.write(scratch, 0, countLength);
+        return length + id.length + countLength;
+    }
+
+    private static void writeHeader(OutputStream out, long supersedes) throws IOException {
+        out.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putLong(supersedes).array());
+    }
+
+    private static OptionalLong readSupersedes(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Header is tiny, read until full or end of file
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES) {
+                return OptionalLong.empty();
+            }
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a price history segment: " + segment);
+            }
+            return OptionalLong.of(header.getLong());
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .toList());
+            segments.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+            return segments;
+        }
+    }
+
+    private static String segmentName(long number) {
+        return SEGMENT_PREFIX + String.format("%010d", number) + SEGMENT_SUFFIX;
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @FunctionalInterface
+    public interface PricePointConsumer {
+        void accept(long epochSecond, long priceInCents);
+    }
+
+    /**
+     * One product's points, delta-encoded exactly like a block body.
+     */
+    private static class Series {
+        private byte[] data = new byte[16];
+        private int length;
+        private int count;
+        private int changes;
+        private long lastTime;
+        private long lastCents;
+        private long pendingTime;
+        private long pendingCents;
+        private int pendingSeen;
+
+        synchronized void append(long epochSecond, long priceInCents) {
+            if (data.length - length < 20) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 20));
+            }
+            length = writeVarLong(data, length, zigzag(epochSecond - lastTime));
+            length = writeVarLong(data, length, zigzag(priceInCents - lastCents));
+            if (count > 0 && priceInCents != lastCents) {
+                changes++;
+            }
+            count++;
+            lastTime = epochSecond;
+            lastCents = priceInCents;
+            pendingSeen = 0;
+        }
+
+        synchronized void appendPending(long epochSecond, long priceInCents) {
+            if (pendingSeen == 0 || pendingCents != priceInCents) {
+                pendingTime = epochSecond;
+                pendingCents = priceInCents;
+                pendingSeen = 0;
+            }
+            pendingSeen++;
+        }
+
+        synchronized int pendingCount(long priceInCents) {
+            return pendingSeen > 0 && pendingCents == priceInCents ? pendingSeen : 0;
+        }
+
+        synchronized void scan(long from, long to, PricePointConsumer consumer) {
+            ByteBuffer in = ByteBuffer.wrap(data, 0, length);
+            long time = 0;
+            long cents = 0;
+            for (int i = 0; i < count; i++) {
+                time += unzigzag(readVarLong(in));
+                cents += unzigzag(readVarLong(in));
+                if (time >= from && time < to) {
+                    consumer.accept(time, cents);
+                }
+            }
+        }
+
+        synchronized OptionalLong lastPrice() {
+            return count == 0 ? OptionalLong.empty() : OptionalLong.of(lastCents);
+        }
+
+        synchronized long[] recent(int points) {
+            long[] recent = new long[Math.min(points, count)];
+            int skip = count - recent.length;
+            int[] index = {0};
+            scan(Long.MIN_VALUE, Long.MAX_VALUE, (time, cents) -> {
+                if (index[0] >= skip) {
+                    recent[index[0] - skip] = cents;
+                }
+                index[0]++;
+            });
+            return recent;
+        }
+
+        synchronized double changeRate() {
+            return (changes + 1.0) / (count + 2.0);
+        }
+
+        synchronized Series since(long cutoff) {
+            Series trimmed = new Series();
+            scan(cutoff, Long.MAX_VALUE, trimmed::append);
+            trimmed.pendingTime = pendingTime;
+            trimmed.pendingCents = pendingCents;
+            trimmed.pendingSeen = pendingSeen;
+            return trimmed;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Price selectors from config, handed out most successful first. Every extraction reports which
+ * selector matched; the ones checked before it count as misses, so a selector that stopped
+ * matching after a layout change sinks below the ones that still work and is flagged as stale.
+ */
+@Slf4j
+public class PriceSelectorRegistry {
+    // Weight of the latest page in the hit rate; about the last 20 pages dominate
+    private static final double DECAY = 0.1;
+
+    private final Map<String, SelectorStats> selectors = new LinkedHashMap<>();
+    private final int staleAfterMisses;
+    private final LoggingService logger;
+    private int pagesWithoutMatch;
+
+    public PriceSelectorRegistry(List<String> selectors, int staleAfterMisses) {
+        if (selectors.isEmpty()) {
+            throw new IllegalArgumentException("At least one price selector is required");
+        }
+
+        this.logger = new LoggingService(PriceSelectorRegistry.class);
+        this.staleAfterMisses = staleAfterMisses;
+        for (int i = 0; i < selectors.size(); i++) {
+            this.selectors.put(selectors.get(i), new SelectorStats(selectors.get(i), i));
+        }
+    }
+
+    public static PriceSelectorRegistry fromConfig() {
+        AppConfig config = AppConfig.getInstance();
+        return new PriceSelectorRegistry(config.getPriceSelectors(), config.getPriceSelectorStaleAfterMisses());
+    }
+
+    /**
+     * Candidates in the order they should be tried. Stale selectors stay at the end so they are
+     * still seen matching again if the markup comes back.
+     */
+    public synchronized List<String> orderedSelectors() {
+        return selectors.values().stream()
+                .sorted(Comparator.comparing((SelectorStats stats) -> stats.stale)
+                        .thenComparing(Comparator.comparingDouble((SelectorStats stats) -> stats.hitRate).reversed())
+                        .thenComparingInt(stats -> stats.configuredIndex))
+                .map(stats -> stats.selector)
+                .toList();
+    }
+
+    /**
+     * Records one extraction over {@code tried}, in that order; {@code matched} is null when
+     * nothing matched before the wait timed out.
+     */
+    public synchronized void record(List<String> tried, String matched, long elapsedNanos) {
+        for (String selector : tried) {
+            SelectorStats stats = selectors.get(selector);
+            if (stats == null) {
+                continue;
+            }
+            if (selector.equals(matched)) {
+                stats.recordHit(elapsedNanos);
+                break;
+            }
+            stats.recordMiss();
+        }
+
+        if (matched != null) {
+            pagesWithoutMatch = 0;
+        } else if (++pagesWithoutMatch == staleAfterMisses) {
+            logger.error("No price selector matched on the last {} pages, the product page layout may have changed",
+                    pagesWithoutMatch);
+        }
+    }
+
+    public synchronized void logSummary() {
+        for (SelectorStats stats : selectors.values()) {
+            logger.info("Price selector {}: {} hit(s) in {} check(s), hit rate {}%, p50 {} ms{}",
+                    stats.selector, stats.hits, stats.checks, Math.round(stats.hitRate * 100),
+                    stats.latency.percentileMicros(0.5) / 1000, stats.stale ? " (stale)" : "");
+        }
+    }
+
+    private class SelectorStats {
+        private final String selector;
+        private final int configuredIndex;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private double hitRate = 0.5;
+        private long hits;
+        private long checks;
+        private int consecutiveMisses;
+        private boolean stale;
+
+        SelectorStats(String selector, int configuredIndex) {
+            this.selector = selector;
+            this.configuredIndex = configuredIndex;
+        }
+
+        void recordHit(long elapsedNanos) {
+            checks++;
+            hits++;
+            hitRate += DECAY * (1 - hitRate);
+            latency.recordNanos(elapsedNanos);
+            consecutiveMisses = 0;
+            if (stale) {
+                stale = false;
+                logger.info("Price selector {} is matching again", selector);
+            }
+        }
+
+        void recordMiss() {
+            checks++;
+            hitRate -= DECAY * hitRate;
+            consecutiveMisses++;
+            if (!stale && staleAfterMisses > 0 && consecutiveMisses >= staleAfterMisses) {
+                stale = true;
+                MetricsService.getInstance().increment("selector_stale");
+                logger.error("Price selector {} has not matched in {} checks, marking it stale",
+                        selector, consecutiveMisses);
+            }
+        }
+    }
+}
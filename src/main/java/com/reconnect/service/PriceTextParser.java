@@ -0,0 +1,183 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Turns displayed price text such as "R$ 1.234,56" or "US $12.99" into cents in one scan over the
+ * characters, without allocating. The first amount with a decimal part inside the configured range
+ * wins; whole amounts are only used when the text has nothing better.
+ */
+public class PriceTextParser {
+    public static final long NOT_FOUND = -1;
+
+    private static final int MAX_DIGITS = 13;
+
+    private final char decimalSeparator;
+    private final char groupingSeparator;
+    private final boolean spaceGrouping;
+    private final long minCents;
+    private final long maxCents;
+
+    public PriceTextParser(Locale locale, long minCents, long maxCents) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.spaceGrouping = isSpace(symbols.getGroupingSeparator());
+        this.groupingSeparator = spaceGrouping ? ' ' : symbols.getGroupingSeparator();
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+    }
+
+    public static PriceTextParser fromConfig() {
+        AppConfig config = AppConfig.getInstance();
+        return new PriceTextParser(
+                Locale.forLanguageTag(config.getPriceLocale()),
+                config.getPriceMinCents(),
+                config.getPriceMaxCents()
+        );
+    }
+
+    public boolean isInRange(long cents) {
+        return cents >= minCents && cents <= maxCents;
+    }
+
+    public long parseCents(CharSequence text) {
+        if (text == null) {
+            return NOT_FOUND;
+        }
+
+        long wholeAmount = NOT_FOUND;
+        int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            if (!isDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            int lastSeparator = -1;
+            int separators = 0;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (isDigit(c)) {
+                    i++;
+                } else if (separatorOf(c) != 0 && i + 1 < length && isDigit(text.charAt(i + 1))) {
+                    lastSeparator = i;
+                    separators++;
+                    i++;
+                } else {
+                    break;
+                }
+            }
+
+            if ((i < length && text.charAt(i) == '%') || (start > 0 && isMark(text.charAt(start - 1)))) {
+                continue;
+            }
+
+            boolean decimal = lastSeparator >= 0 && isDecimal(text, lastSeparator, i, separators);
+            long cents = tokenCents(text, start, i, decimal ? lastSeparator : -1);
+            if (cents == NOT_FOUND || !isInRange(cents)) {
+                continue;
+            }
+            if (decimal) {
+                return cents;
+            }
+            if (wholeAmount == NOT_FOUND) {
+                wholeAmount = cents;
+            }
+        }
+
+        return wholeAmount;
+    }
+
+    private long tokenCents(CharSequence text, int start, int end, int decimalMark) {
+        boolean decimal = decimalMark >= 0;
+        int integerEnd = decimal ? decimalMark : end;
+
+        // Everything before the decimal part must be well-formed grouping: 1-3 digits, then groups of 3
+        char grouping = 0;
+        int groupDigits = 0;
+        int digits = 0;
+        long integer = 0;
+        for (int i = start; i < integerEnd; i++) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                if (++digits > MAX_DIGITS) {
+                    return NOT_FOUND;
+                }
+                integer = integer * 10 + (c - '0');
+                groupDigits++;
+                continue;
+            }
+
+            char separator = separatorOf(c);
+            boolean firstGroup = grouping == 0;
+            if (firstGroup) {
+                if (decimal && separator == separatorOf(text.charAt(decimalMark))) {
+                    return NOT_FOUND;
+                }
+                grouping = separator;
+            }
+            if (separator != grouping || (firstGroup ? groupDigits > 3 : groupDigits != 3)) {
+                return NOT_FOUND;
+            }
+            groupDigits = 0;
+        }
+        if (grouping != 0 && groupDigits != 3) {
+            return NOT_FOUND;
+        }
+
+        long cents = integer * 100;
+        if (decimal) {
+            int fractionDigits = end - decimalMark - 1;
+            int fraction = 0;
+            for (int i = decimalMark + 1; i < end; i++) {
+                fraction = fraction * 10 + (text.charAt(i) - '0');
+            }
+            cents += switch (fractionDigits) {
+                case 1 -> fraction * 10;
+                case 2 -> fraction;
+                default -> (fraction + 5) / 10;
+            };
+        }
+        return cents;
+    }
+
+    private boolean isDecimal(CharSequence text, int lastSeparator, int end, int separators) {
+        int fractionDigits = end - lastSeparator - 1;
+        if (fractionDigits <= 2) {
+            return true;
+        }
+        // "1.234" is a thousand in pt-BR; three decimals only when the locale's decimal mark stands alone
+        return fractionDigits == 3
+                && separators == 1
+                && separatorOf(text.charAt(lastSeparator)) == decimalSeparator
+                && decimalSeparator != groupingSeparator;
+    }
+
+    private char separatorOf(char c) {
+        if (c == '.' || c == ',' || c == decimalSeparator || c == groupingSeparator) {
+            return c;
+        }
+        if (spaceGrouping && isSpace(c)) {
+            return ' ';
+        }
+        return 0;
+    }
+
+    private boolean isMark(char c) {
+        return c == '.' || c == ',' || c == decimalSeparator;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\u00A0' || c == '\u202F';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
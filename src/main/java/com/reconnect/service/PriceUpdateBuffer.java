@@ -0,0 +1,188 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import com.reconnect.domain.PriceUpdate;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+@Slf4j
+public class PriceUpdateBuffer implements AutoCloseable {
+    private final ProductService productService;
+    private final Consumer<PriceUpdate> successListener;
+    private final BiConsumer<PriceUpdate, Exception> failureListener;
+    private final BlockingQueue<PriceUpdate> pending;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final boolean bulkEnabled;
+    private final int writeConcurrency;
+    private final Semaphore writeSlots;
+    private final Thread flusher;
+    private final MetricsService metrics;
+    private final LoggingService logger;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile boolean closed;
+
+    public PriceUpdateBuffer(ProductService productService,
+                             Consumer<PriceUpdate> successListener,
+                             BiConsumer<PriceUpdate, Exception> failureListener) {
+        AppConfig config = AppConfig.getInstance();
+
+        this.logger = new LoggingService(PriceUpdateBuffer.class);
+        this.metrics = MetricsService.getInstance();
+        this.productService = productService;
+        this.successListener = successListener;
+        this.failureListener = failureListener;
+        this.pending = new ArrayBlockingQueue<>(config.getWriteBufferCapacity());
+        this.batchSize = config.getWriteBatchSize();
+        this.flushIntervalMillis = config.getWriteFlushIntervalMillis();
+        this.bulkEnabled = config.isBulkWriteEnabled();
+        this.writeConcurrency = config.getWriteConcurrency();
+        this.writeSlots = new Semaphore(writeConcurrency);
+        metrics.queueDepth("write_back", pending::size);
+
+        this.flusher = new Thread(this::flushLoop, "price-update-flusher");
+        this.flusher.start();
+    }
+
+    public void submit(PriceUpdate update) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Price update buffer is closed");
+        }
+        // Blocks when the buffer is full, so a slow API pushes back on the scrapers
+        pending.put(update);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        flusher.join();
+
+        // Every slot back means every in-flight write has completed
+        if (!writeSlots.tryAcquire(writeConcurrency, 1, TimeUnit.MINUTES)) {
+            logger.error("Gave up waiting for in-flight price writes after 1 minute");
+        }
+
+        logger.info("Price write-back: {} written, {} failed in {} request(s)",
+                written.get(), failed.get(), requests.get());
+    }
+
+    private void flushLoop() {
+        List<PriceUpdate> batch = new ArrayList<>(batchSize);
+
+        while (!closed || !pending.isEmpty()) {
+            try {
+                PriceUpdate first = pending.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (batch.size() < batchSize) {
+                    long remaining = closed ? 0 : deadline - System.currentTimeMillis();
+                    PriceUpdate next = remaining > 0
+                            ? pending.poll(remaining, TimeUnit.MILLISECONDS)
+                            : pending.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                logger.error("Price update flusher interrupted with {} update(s) pending", pending.size());
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PriceUpdate> batch) throws InterruptedException {
+        logger.debug("Flushing {} price update(s)", batch.size());
+
+        if (bulkEnabled) {
+            List<PriceUpdate> updates = List.copyOf(batch);
+            write(updates, () -> productService.updateProductPricesAsync(updates));
+            return;
+        }
+
+        for (PriceUpdate update : batch) {
+            write(List.of(update), () -> productService.updateProductPriceAsync(
+                    update.productId(),
+                    update.productLink(),
+                    update.priceInCents()
+            ));
+        }
+    }
+
+    private void write(List<PriceUpdate> updates, Supplier<CompletableFuture<Void>> request)
+            throws InterruptedException {
+        // The flusher only waits for a free slot, not for the response, so batching continues meanwhile
+        writeSlots.acquire();
+        requests.incrementAndGet();
+        long start = System.nanoTime();
+
+        CompletableFuture<Void> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+
+        response.whenComplete((ignored, error) -> {
+            metrics.histogram("write_back").recordNanos(System.nanoTime() - start);
+            try {
+                if (error == null) {
+                    updates.forEach(this::reportSuccess);
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    Exception failure = cause instanceof Exception e ? e : new RuntimeException(cause);
+                    updates.forEach(update -> reportFailure(update, failure));
+                }
+            } finally {
+                writeSlots.release();
+            }
+        });
+    }
+
+    private void reportSuccess(PriceUpdate update) {
+        written.incrementAndGet();
+        try {
+            successListener.accept(update);
+        } catch (Exception listenerError) {
+            logger.error("Price update success listener threw: {}", listenerError.getMessage());
+        }
+    }
+
+    private void reportFailure(PriceUpdate update, Exception e) {
+        failed.incrementAndGet();
+        metrics.increment("write_failure");
+        logger.error("Failed to write price {} for product {}: {}",
+                update.priceInCents(), update.productId(), e.getMessage());
+        try {
+            failureListener.accept(update, e);
+        } catch (Exception listenerError) {
+            logger.error("Price update failure listener threw: {}", listenerError.getMessage());
+        }
+    }
+}
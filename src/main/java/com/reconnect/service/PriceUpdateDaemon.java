@@ -0,0 +1,64 @@
+package com.reconnect.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+@Slf4j
+public class PriceUpdateDaemon {
+    private final PriceUpdateService priceUpdateService;
+    private final CronSchedule schedule;
+    private final LoggingService logger;
+    private final Object lock = new Object();
+    private volatile boolean stopping;
+
+    public PriceUpdateDaemon(PriceUpdateService priceUpdateService, CronSchedule schedule) {
+        this.logger = new LoggingService(PriceUpdateDaemon.class);
+        this.priceUpdateService = priceUpdateService;
+        this.schedule = schedule;
+    }
+
+    public void run() throws InterruptedException {
+        logger.info("Starting price update daemon with schedule '{}'", schedule);
+
+        while (!stopping) {
+            ZonedDateTime next = schedule.next(ZonedDateTime.now());
+            logger.info("Next price update pass at {}", next);
+
+            if (!awaitUntil(next)) {
+                break;
+            }
+
+            try {
+                priceUpdateService.run();
+            } catch (Exception e) {
+                // A failed pass must not take the daemon down; the next slot retries
+                logger.error("Price update pass failed: {}", e.getMessage(), e);
+            }
+        }
+
+        logger.info("Price update daemon stopped");
+    }
+
+    public void stop() {
+        stopping = true;
+        priceUpdateService.requestStop();
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private boolean awaitUntil(ZonedDateTime time) throws InterruptedException {
+        synchronized (lock) {
+            while (!stopping) {
+                long remaining = Duration.between(ZonedDateTime.now(), time).toMillis();
+                if (remaining <= 0) {
+                    return true;
+                }
+                lock.wait(remaining);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,488 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import com.reconnect.domain.PriceUpdate;
+import com.reconnect.domain.Product;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+@Slf4j
+public class PriceUpdateService {
+    private static final int MAX_RETRIES = 3;
+    private static final long MEMBERSHIP_CHECK_MILLIS = 1000;
+
+    private final ProductService productService;
+    private final AliExpressScraperPool scraperPool;
+    private final EmbeddedPriceExtractor embeddedPriceExtractor;
+    private final PriceCache priceCache;
+    private final PriceChangeDetector priceChangeDetector;
+    private final HostRateLimiter rateLimiter;
+    private final RetryBackoff retryBackoff;
+    private final ProductScheduler productScheduler;
+    private final ShardCoordinator shardCoordinator;
+    private final AlertService alertService;
+    private final boolean fastPathEnabled;
+    private final int ingestionQueueCapacity;
+    private final int schedulingConcurrency;
+    private final int extractionConcurrency;
+    private final int extractionQueueCapacity;
+    private final Path journalFile;
+    private final long journalFsyncIntervalMillis;
+    private final MetricsService metrics;
+    private final LoggingService logger;
+    private final Map<String, CompletableFuture<Map<String, Long>>> listings = new ConcurrentHashMap<>();
+    private volatile boolean stopping;
+
+    public PriceUpdateService(ProductService productService,
+                              AliExpressScraperPool scraperPool,
+                              EmbeddedPriceExtractor embeddedPriceExtractor,
+                              PriceCache priceCache,
+                              PriceChangeDetector priceChangeDetector,
+                              HostRateLimiter rateLimiter,
+                              ProductScheduler productScheduler,
+                              ShardCoordinator shardCoordinator,
+                              AlertService alertService) {
+        this.logger = new LoggingService(PriceUpdateService.class);
+        this.metrics = MetricsService.getInstance();
+        this.productService = productService;
+        this.scraperPool = scraperPool;
+        this.embeddedPriceExtractor = embeddedPriceExtractor;
+        this.priceCache = priceCache;
+        this.priceChangeDetector = priceChangeDetector;
+        this.rateLimiter = rateLimiter;
+        this.retryBackoff = new RetryBackoff();
+        this.productScheduler = productScheduler;
+        this.shardCoordinator = shardCoordinator;
+        this.alertService = alertService;
+        this.fastPathEnabled = AppConfig.getInstance().isFastPathEnabled();
+        this.ingestionQueueCapacity = AppConfig.getInstance().getPipelineIngestionQueueCapacity();
+        this.schedulingConcurrency = Math.max(1, AppConfig.getInstance().getPipelineSchedulingConcurrency());
+        this.extractionConcurrency = AppConfig.getInstance().getPipelineExtractionConcurrency();
+        this.extractionQueueCapacity = AppConfig.getInstance().getPipelineExtractionQueueCapacity();
+        this.journalFile = Path.of(AppConfig.getInstance().getJournalFile());
+        this.journalFsyncIntervalMillis = AppConfig.getInstance().getJournalFsyncIntervalMillis();
+    }
+
+    public void run() throws InterruptedException {
+        RunJournal journal = new RunJournal(journalFile, journalFsyncIntervalMillis);
+        PriceUpdateBuffer priceUpdates = new PriceUpdateBuffer(productService,
+            update -> journal.record(update, RunJournal.Status.WRITTEN, null),
+            (update, e) -> {
+                journal.record(update, RunJournal.Status.WRITE_FAILED, e.getMessage());
+                notifyFailure(update.productId(), e);
+            });
+        Instant deadline = productScheduler.deadlineFrom(Instant.now());
+        AtomicLong skipped = new AtomicLong();
+        AtomicLong resumed = new AtomicLong();
+        Set<String> dispatched = ConcurrentHashMap.newKeySet();
+        long initialMembership = 0;
+        if (shardCoordinator != null) {
+            shardCoordinator.renewAndRefresh();
+            initialMembership = shardCoordinator.membershipVersion();
+            logger.info("Worker {} taking its share of the catalog with {} worker(s) in the shard ring",
+                shardCoordinator.getWorkerId(), shardCoordinator.memberCount());
+        }
+        long membershipVersion = initialMembership;
+
+        // catalog ingestion -> scheduling -> extraction -> write-back (PriceUpdateBuffer), each stage
+        // with its own threads and a bounded queue in front, so a slow stage only fills its own queue
+        int extractionWorkers = extractionWorkers();
+        StageQueue<Product> ingested = new StageQueue<>("ingestion", ingestionQueueCapacity);
+        StageQueue<Product> scheduled = new StageQueue<>("extraction", extractionQueueCapacity > 0
+            ? extractionQueueCapacity
+            : extractionWorkers * 2);
+        AtomicReference<Throwable> ingestionFailure = new AtomicReference<>();
+        // Products queued but not yet finished by the scheduling or extraction stage
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger schedulersLeft = new AtomicInteger(schedulingConcurrency);
+        List<Thread> stages = new ArrayList<>();
+
+        boolean completed = false;
+        try {
+            List<PriceUpdate> pendingWrites = journal.pendingWrites();
+            if (journal.replayedCount() > 0) {
+                long failed = journal.failedCount();
+                logger.info("Resuming interrupted run: {} products already done, redoing {} write-back(s), retrying {} failure(s)",
+                    journal.replayedCount() - pendingWrites.size() - failed, pendingWrites.size(), failed);
+            }
+            for (PriceUpdate update : pendingWrites) {
+                priceUpdates.submit(update);
+            }
+
+            stages.add(Thread.ofVirtual().name("catalog-ingestion").start(() -> {
+                try {
+                    ingest(ingested, membershipVersion, inFlight);
+                } catch (Throwable e) {
+                    ingestionFailure.set(e);
+                } finally {
+                    ingested.close();
+                }
+            }));
+
+            for (int i = 0; i < schedulingConcurrency; i++) {
+                stages.add(Thread.ofVirtual().name("scrape-scheduling-" + i).start(() -> {
+                    try {
+                        Product product;
+                        while ((product = ingested.take()) != null) {
+                            boolean handedOff = false;
+                            try {
+                                if (!dispatched.add(product.getId())) {
+                                    continue;
+                                }
+                                if (journal.isDone(product.getId())) {
+                                    resumed.incrementAndGet();
+                                    continue;
+                                }
+                                if (stopping || Instant.now().isAfter(deadline)) {
+                                    skipped.incrementAndGet();
+                                    continue;
+                                }
+                                // Cache hits are answered here and never take an extraction slot
+                                if (!answerFromCache(product, priceUpdates, journal)) {
+                                    scheduled.put(product);
+                                    handedOff = true;
+                                }
+                            } finally {
+                                if (!handedOff) {
+                                    inFlight.decrementAndGet();
+                                }
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        if (schedulersLeft.decrementAndGet() == 0) {
+                            scheduled.close();
+                        }
+                    }
+                }));
+            }
+
+            // Playwright's synchronous API blocks inside monitors, which would pin virtual threads'
+            // carriers; the browser-bound stage stays on platform threads
+            for (int i = 0; i < extractionWorkers; i++) {
+                stages.add(Thread.ofPlatform().name("price-extraction-" + i).start(() -> {
+                    try {
+                        Product product;
+                        while ((product = scheduled.take()) != null) {
+                            try {
+                                if (stopping || Instant.now().isAfter(deadline)) {
+                                    skipped.incrementAndGet();
+                                    continue;
+                                }
+                                try (MetricsService.Span span = metrics.span("product")) {
+                                    processProduct(product, priceUpdates, journal);
+                                }
+                            } finally {
+                                inFlight.decrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+        } finally {
+            try {
+                for (Thread stage : stages) {
+                    while (!stage.join(Duration.ofMinutes(1))) {
+                        logger.info("Waiting for pipeline stage {} to finish", stage.getName());
+                    }
+                }
+                completed = !stages.isEmpty() && ingestionFailure.get() == null;
+            } finally {
+                listings.clear();
+                priceUpdates.close();
+
+                // A pass cut short by its time budget is a normal end: what it did not reach is picked up
+                // again in priority order. Only a stop request mid-drain or a failed pipeline resumes.
+                if (completed && (!stopping || skipped.get() == 0)) {
+                    journal.closeAndDelete();
+                } else {
+                    journal.close();
+                }
+            }
+        }
+
+        logger.info("Pipeline queues: {} peak {}/{}, {} peak {}/{}",
+            ingested.getName(), ingested.getPeakDepth(), ingested.getCapacity(),
+            scheduled.getName(), scheduled.getPeakDepth(), scheduled.getCapacity());
+        Throwable failure = ingestionFailure.get();
+        if (failure != null) {
+            throw failure instanceof RuntimeException runtime
+                ? runtime
+                : new RuntimeException("Catalog ingestion failed", failure);
+        }
+        if (resumed.get() > 0) {
+            logger.info("Skipped {} products completed before the last interruption", resumed.get());
+        }
+        if (skipped.get() > 0) {
+            logger.info("Run stopped early, {} products left for the next run", skipped.get());
+        }
+        scraperPool.logRunStats();
+        priceCache.logSummaryAndReset();
+        priceChangeDetector.logSummaryAndReset();
+        if (fastPathEnabled) {
+            embeddedPriceExtractor.logSummaryAndReset();
+        }
+        metrics.logSummary();
+    }
+
+    private void ingest(StageQueue<Product> ingested, long membershipVersion, AtomicInteger inFlight) {
+        // Prioritized runs are already cut to the cap by the scheduler; streamed runs take the catalog
+        // in API order up to it, and still read the rest so the snapshot stays complete
+        int maxProducts = productScheduler.getMaxProducts();
+        Set<String> enqueued = new HashSet<>();
+        Consumer<Product> enqueue = product -> {
+            if (shardCoordinator != null && !shardCoordinator.owns(product.getId())) {
+                return;
+            }
+            // A catch-up pass re-reads products an earlier pass already queued
+            if (enqueued.contains(product.getId()) || (maxProducts > 0 && enqueued.size() >= maxProducts)) {
+                return;
+            }
+            enqueued.add(product.getId());
+            inFlight.incrementAndGet();
+            if (enqueued.size() == maxProducts) {
+                logger.info("Reached the run cap of {} products, the rest waits for the next run", maxProducts);
+            }
+            try {
+                ingested.put(product);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while queueing products", e);
+            }
+        };
+
+        List<Product> catalog = null;
+        if (productScheduler.isPrioritizing()) {
+            catalog = productService.getAllProducts();
+            productScheduler.prioritize(ownedProducts(catalog)).forEach(enqueue);
+        } else {
+            productService.forEachProduct(enqueue);
+        }
+
+        if (shardCoordinator == null) {
+            return;
+        }
+        // The queue stays open until the queued work drains, so a worker leaving or joining at any
+        // point of the run still hands this one the products now mapped to it
+        shardCoordinator.renewAndRefresh();
+        long seenVersion = membershipVersion;
+        while (!stopping) {
+            long version = shardCoordinator.membershipVersion();
+            if (version != seenVersion) {
+                seenVersion = version;
+                logger.info("Shard membership changed during the run, picking up reassigned products");
+                if (catalog != null) {
+                    // Same ordering and the same run cap as the first pass, over the new share
+                    productScheduler.prioritize(ownedProducts(catalog), enqueued).forEach(enqueue);
+                } else {
+                    // Nothing of the catalog is kept when streaming, so it is read again; queued products are skipped
+                    productService.forEachProduct(enqueue);
+                }
+            } else if (inFlight.get() == 0) {
+                return;
+            } else {
+                try {
+                    Thread.sleep(MEMBERSHIP_CHECK_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private int extractionWorkers() {
+        return extractionConcurrency > 0 ? extractionConcurrency : scraperPool.size();
+    }
+
+    private List<Product> ownedProducts(List<Product> products) {
+        if (shardCoordinator == null) {
+            return products;
+        }
+        return products.stream().filter(product -> shardCoordinator.owns(product.getId())).toList();
+    }
+
+    public void requestStop() {
+        // In-flight products finish and their writes are flushed; nothing new is started
+        stopping = true;
+    }
+
+    private void processProduct(Product product, PriceUpdateBuffer priceUpdates, RunJournal journal) {
+        try {
+            String link = productService.getProductLink(product);
+            logger.info("Processing product: {}", product);
+
+            OptionalLong price = listingPrice(product, link);
+
+            if (price.isPresent()) {
+                long priceInCents = price.getAsLong();
+
+                logger.info("AliExpress price for product {} in cents: {}",
+                    product.getId(), priceInCents);
+                if (priceChangeDetector.isAnomalous(product, priceInCents, true)) {
+                    // Not cached and only kept as pending in history, so the next run scrapes it again
+                    metrics.increment("price_anomaly");
+                    journal.record(product.getId(), product.getLink(), priceInCents, RunJournal.Status.FAILED,
+                        "Rejected anomalous price");
+                    return;
+                }
+                priceCache.put(link, priceInCents);
+                productScheduler.recordObservation(product, priceInCents);
+
+                submitIfChanged(product, priceInCents, priceUpdates, journal);
+            } else {
+                logger.error("Failed to fetch price for product {} after {} attempts",
+                    product.getId(), MAX_RETRIES);
+                metrics.increment("scrape_failure");
+                journal.record(product.getId(), product.getLink(), 0, RunJournal.Status.FAILED,
+                    "No price after " + MAX_RETRIES + " attempts");
+            }
+        } catch (Throwable e) {
+            journal.record(product.getId(), product.getLink(), 0, RunJournal.Status.FAILED, e.getMessage());
+            notifyFailure(product.getId(), e);
+        }
+    }
+
+    private boolean answerFromCache(Product product, PriceUpdateBuffer priceUpdates, RunJournal journal) {
+        try {
+            OptionalLong cachedPrice = priceCache.get(productService.getProductLink(product));
+            if (cachedPrice.isEmpty()) {
+                return false;
+            }
+            // Sibling SKU prices reach the cache unchecked; an implausible one is scraped fresh
+            // instead, so only a real scrape of this product can confirm the change
+            if (priceChangeDetector.isAnomalous(product, cachedPrice.getAsLong(), false)) {
+                logger.info("Cached price for product {} is implausible, scraping it instead", product.getId());
+                return false;
+            }
+            logger.info("Using cached price for product {}: {} cents", product.getId(), cachedPrice.getAsLong());
+            submitIfChanged(product, cachedPrice.getAsLong(), priceUpdates, journal);
+        } catch (Throwable e) {
+            journal.record(product.getId(), product.getLink(), 0, RunJournal.Status.FAILED, e.getMessage());
+            notifyFailure(product.getId(), e);
+        }
+        return true;
+    }
+
+    private OptionalLong listingPrice(Product product, String link) throws InterruptedException {
+        // Variants of one listing share a single page load: the first to arrive fetches it, the rest wait
+        CompletableFuture<Map<String, Long>> fetch = new CompletableFuture<>();
+        CompletableFuture<Map<String, Long>> inFlight = listings.putIfAbsent(product.getLink(), fetch);
+
+        if (inFlight == null) {
+            Map<String, Long> prices = Map.of();
+            try {
+                prices = fetchListing(product, link);
+            } finally {
+                fetch.complete(prices);
+            }
+            return EmbeddedPriceExtractor.priceForSku(prices, product.getSkuId());
+        }
+
+        OptionalLong price;
+        try {
+            price = EmbeddedPriceExtractor.priceForSku(inFlight.get(), product.getSkuId());
+        } catch (ExecutionException e) {
+            price = OptionalLong.empty();
+        }
+        if (price.isPresent()) {
+            metrics.increment("listing_reuse");
+            logger.info("Reusing listing data for product {}", product.getId());
+            return price;
+        }
+
+        // The listing was loaded for another variant and did not carry this one's price
+        return EmbeddedPriceExtractor.priceForSku(fetchListing(product, link), product.getSkuId());
+    }
+
+    private Map<String, Long> fetchListing(Product product, String link) throws InterruptedException {
+        Map<String, Long> prices = fastPathEnabled
+            ? fetchEmbeddedPrices(product)
+            : Map.of();
+        int retries = 0;
+
+        while (EmbeddedPriceExtractor.priceForSku(prices, product.getSkuId()).isEmpty() && retries < MAX_RETRIES) {
+            try {
+                rateLimiter.acquire(link);
+                // The page service reports the outcome of the attempt to the rate limiter itself
+                prices = scraperPool.getPricesFromUrl(link, product.getSkuId());
+                if (EmbeddedPriceExtractor.priceForSku(prices, product.getSkuId()).isEmpty()) {
+                    retries++;
+
+                    if (retries < MAX_RETRIES) {
+                        metrics.increment("retry");
+                        logger.info("Retry {} of {} for product {}",
+                            retries, MAX_RETRIES, product.getId());
+                        retryBackoff.sleep(retries);
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.error("Error on attempt {} for product {}: {}",
+                    retries + 1, product.getId(), e.getMessage());
+                retries++;
+                if (retries < MAX_RETRIES) {
+                    metrics.increment("retry");
+                    retryBackoff.sleep(retries);
+                }
+            }
+        }
+
+        // Sibling SKUs from the same page answer later products from the cache as well
+        prices.forEach((skuId, cents) -> {
+            if (!skuId.isBlank() && !skuId.equals(product.getSkuId())) {
+                priceCache.put(productService.getProductLink(product.getLink(), skuId), cents);
+            }
+        });
+        return prices;
+    }
+
+    private Map<String, Long> fetchEmbeddedPrices(Product product) throws InterruptedException {
+        rateLimiter.acquire(product.getLink());
+        Map<String, Long> prices;
+        try (MetricsService.Span span = metrics.span("fast_path")) {
+            prices = embeddedPriceExtractor.getPrices(product.getLink());
+        }
+        if (!prices.isEmpty()) {
+            rateLimiter.onSuccess(product.getLink());
+        }
+        return prices;
+    }
+
+    private void submitIfChanged(Product product, long priceInCents, PriceUpdateBuffer priceUpdates,
+                                 RunJournal journal) throws InterruptedException {
+        PriceUpdate update = new PriceUpdate(product.getId(), product.getLink(), priceInCents);
+
+        if (priceChangeDetector.shouldWrite(product, priceInCents)) {
+            journal.record(update, RunJournal.Status.SCRAPED, null);
+            priceUpdates.submit(update);
+        } else {
+            journal.record(update, RunJournal.Status.SUPPRESSED, null);
+        }
+    }
+
+    private void notifyFailure(String productId, Throwable e) {
+        alertService.reportFailure(productId, e);
+        logger.error("Error processing product {}: {}", productId, e.getMessage());
+    }
+}
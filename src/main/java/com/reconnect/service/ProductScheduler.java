@@ -0,0 +1,80 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import com.reconnect.domain.Product;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+public class ProductScheduler {
+    private static final double NEVER_UPDATED_AGE_HOURS = 24 * 365;
+
+    private final PriceHistoryStore priceHistory;
+    private final boolean prioritize;
+    private final int maxProducts;
+    private final Duration timeBudget;
+    private final double volatilityWeight;
+    private final LoggingService logger;
+
+    public ProductScheduler(PriceHistoryStore priceHistory) {
+        AppConfig config = AppConfig.getInstance();
+
+        this.logger = new LoggingService(ProductScheduler.class);
+        this.priceHistory = priceHistory;
+        this.prioritize = config.isSchedulerPrioritize();
+        this.maxProducts = config.getRunMaxProducts();
+        this.timeBudget = Duration.ofMinutes(config.getRunTimeBudgetMinutes());
+        this.volatilityWeight = config.getSchedulerVolatilityWeight();
+    }
+
+    public boolean isPrioritizing() {
+        return prioritize;
+    }
+
+    public int getMaxProducts() {
+        return maxProducts;
+    }
+
+    public Instant deadlineFrom(Instant start) {
+        return timeBudget.isZero() ? Instant.MAX : start.plus(timeBudget);
+    }
+
+    public List<Product> prioritize(List<Product> products) {
+        return prioritize(products, Set.of());
+    }
+
+    /**
+     * Like {@link #prioritize(List)} for a later pass of the same run: products already scheduled
+     * are left out and count against the run's cap.
+     */
+    public List<Product> prioritize(List<Product> products, Set<String> alreadyScheduled) {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Product> ordered = products.stream()
+                .filter(product -> !alreadyScheduled.contains(product.getId()))
+                .sorted(Comparator.comparingDouble((Product product) -> score(product, now)).reversed())
+                .limit(maxProducts > 0 ? Math.max(0, maxProducts - alreadyScheduled.size()) : Long.MAX_VALUE)
+                .toList();
+
+        logger.info("Scheduled {} of {} products by staleness and volatility", ordered.size(), products.size());
+        return ordered;
+    }
+
+    public void recordObservation(Product product, long priceInCents) {
+        priceHistory.record(product.getId(), Instant.now(), priceInCents);
+    }
+
+    private double score(Product product, LocalDateTime now) {
+        double ageHours = product.getUpdatedAt() == null
+                ? NEVER_UPDATED_AGE_HOURS
+                : Math.max(0, Duration.between(product.getUpdatedAt(), now).toMinutes() / 60.0);
+
+        return ageHours * (1 + volatilityWeight * priceHistory.changeRate(product.getId()));
+    }
+}
@@ -1,20 +1,43 @@
 package com.reconnect.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.reconnect.config.AppConfig;
+import com.reconnect.domain.PriceUpdate;
 import com.reconnect.domain.Product;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Slf4j
 public class ProductService {
+    private static final Map<String, String> JSON_HEADERS = Map.of("Content-Type", "application/json");
+
     private final HttpService httpService;
     private final ObjectMapper objectMapper;
     private final String apiBaseUrl;
+    private final int pageSize;
+    private final Path snapshotFile;
+    private final String updatedSinceParam;
+    private final long fullRefreshHours;
+    private final HttpService.RequestOptions writeOptions;
     private final LoggingService logger;
 
     public ProductService() {
@@ -23,67 +46,343 @@ public class ProductService {
         this.objectMapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule());
         this.apiBaseUrl = AppConfig.getInstance().getApiBaseUrl();
+        this.pageSize = AppConfig.getInstance().getProductsPageSize();
+        this.snapshotFile = AppConfig.getInstance().isCatalogSnapshotEnabled()
+                ? Path.of(AppConfig.getInstance().getCatalogSnapshotFile())
+                : null;
+        this.updatedSinceParam = AppConfig.getInstance().getCatalogUpdatedSinceParam();
+        this.fullRefreshHours = AppConfig.getInstance().getCatalogFullRefreshHours();
+        // PUTs are idempotent, so transient failures are retried before they count as write failures
+        this.writeOptions = httpService.defaultOptions().withMaxRetries(AppConfig.getInstance().getWriteMaxRetries());
     }
 
     public List<Product> getAllProducts() {
+        List<Product> products = new ArrayList<>();
+        forEachProduct(products::add);
+        return products;
+    }
+
+    public long forEachProduct(Consumer<Product> downstream) {
+        // catalog_fetch is HTTP, decoding and the snapshot only; time spent in the consumer, such as
+        // waiting on a full pipeline queue, is taken out
+        long[] downstreamNanos = {0};
+        Consumer<Product> consumer = product -> {
+            long handOff = System.nanoTime();
+            try {
+                downstream.accept(product);
+            } finally {
+                downstreamNanos[0] += System.nanoTime() - handOff;
+            }
+        };
+        long start = System.nanoTime();
+
         try {
-            logger.startOperation("getAllProducts");
-            logger.debug("Fetching all products from API");
+            logger.startOperation("forEachProduct");
+            logger.debug("Streaming products from API with page size {}", pageSize);
 
-            String response = httpService.get(
-                    apiBaseUrl + "/api/products",
-                    Map.of("Content-Type", "application/json")
-            );
+            if (snapshotFile == null) {
+                long total = readPages(null, null, null, consumer);
+                logger.info("Successfully fetched {} products", total);
+                return total;
+            }
 
-            List<Product> products = objectMapper.readValue(
-                    response,
-                    new TypeReference<List<Product>>() {
-                    }
-            );
+            CatalogSnapshot previous = CatalogSnapshot.open(snapshotFile);
+            long total;
+            try (CatalogSnapshot.Writer next = CatalogSnapshot.create(snapshotFile)) {
+                if (isIncrementalDue(previous)) {
+                    total = readIncremental(previous, next, consumer);
+                    next.commit(previous.fullSyncedAt());
+                } else {
+                    total = readPages(null, previous, next, consumer);
+                    next.commit(System.currentTimeMillis());
+                }
+            }
 
-            logger.info("Successfully fetched {} products", products.size());
-            return products;
+            logger.info("Successfully fetched {} products", total);
+            return total;
         } catch (Exception e) {
             logger.error("Error fetching products", e);
             throw new RuntimeException("Failed to fetch products", e);
         } finally {
-            logger.endOperation("getAllProducts");
+            MetricsService.getInstance().histogram("catalog_fetch")
+                    .recordNanos(System.nanoTime() - start - downstreamNanos[0]);
+            logger.endOperation("forEachProduct");
         }
     }
 
     public void updateProductPrice(String productId, String productLink, long priceInCents) {
         try {
             logger.startOperation("updateProductPrice");
-            logger.debug("Updating price for product {} to {} cents", productId, priceInCents);
+            updateProductPriceAsync(productId, productLink, priceInCents).join();
+        } catch (CompletionException e) {
+            logger.error("Error updating price for product " + productId, e.getCause());
+            throw new RuntimeException("Failed to update product price", e.getCause());
+        } finally {
+            logger.endOperation("updateProductPrice");
+        }
+    }
 
-            var updateRequest = Map.of(
-                    "id", productId,
-                    "link", productLink,
-                    "price", priceInCents
-            );
+    public CompletableFuture<Void> updateProductPriceAsync(String productId, String productLink, long priceInCents) {
+        logger.debug("Updating price for product {} to {} cents", productId, priceInCents);
 
-            String requestBody = objectMapper.writeValueAsString(updateRequest);
-            String response = httpService.put(
-                    apiBaseUrl + "/api/products",
-                    requestBody,
-                    Map.of("Content-Type", "application/json")
-            );
+        var updateRequest = Map.of(
+                "id", productId,
+                "link", productLink,
+                "price", priceInCents
+        );
 
+        return putJson(apiBaseUrl + "/api/products", updateRequest).thenAccept(response -> {
             logger.info("Successfully updated price for product {}", productId);
             logger.debug("Price update response: {}", response);
-        } catch (Exception e) {
-            logger.error("Error updating price for product " + productId, e);
-            throw new RuntimeException("Failed to update product price", e);
+        });
+    }
+
+    public void updateProductPrices(List<PriceUpdate> updates) {
+        try {
+            logger.startOperation("updateProductPrices");
+            updateProductPricesAsync(updates).join();
+        } catch (CompletionException e) {
+            logger.error("Error updating prices for " + updates.size() + " products", e.getCause());
+            throw new RuntimeException("Failed to update product prices", e.getCause());
         } finally {
-            logger.endOperation("updateProductPrice");
+            logger.endOperation("updateProductPrices");
+        }
+    }
+
+    public CompletableFuture<Void> updateProductPricesAsync(List<PriceUpdate> updates) {
+        logger.debug("Updating prices for {} products in bulk", updates.size());
+
+        List<Map<String, Object>> updateRequests = updates.stream()
+                .map(update -> Map.<String, Object>of(
+                        "id", update.productId(),
+                        "link", update.productLink(),
+                        "price", update.priceInCents()
+                ))
+                .toList();
+
+        return putJson(apiBaseUrl + "/api/products/bulk", updateRequests).thenAccept(response -> {
+            logger.info("Successfully updated prices for {} products", updates.size());
+            logger.debug("Bulk price update response: {}", response);
+        });
+    }
+
+    private CompletableFuture<String> putJson(String url, Object body) {
+        byte[] requestBody;
+        try {
+            requestBody = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpService.putAsync(url, requestBody, JSON_HEADERS, writeOptions);
+    }
+
+    private boolean isIncrementalDue(CatalogSnapshot previous) {
+        // Deletions never show up in an updatedSince query, so a full fetch still runs now and then
+        return previous != null
+                && !updatedSinceParam.isEmpty()
+                && previous.watermark() != null
+                && System.currentTimeMillis() - previous.fullSyncedAt() < TimeUnit.HOURS.toMillis(fullRefreshHours);
+    }
+
+    private long readPages(String updatedSince, CatalogSnapshot previous, CatalogSnapshot.Writer next,
+                           Consumer<Product> consumer) throws IOException {
+        long total = 0;
+        int page = 0;
+        int notModified = 0;
+        String cursor = null;
+
+        while (true) {
+            String url = buildProductsUrl(page, cursor, updatedSince);
+            CatalogSnapshot.Page cached = previous == null ? null : previous.page(url);
+            ProductPage result;
+            List<Product> products = new ArrayList<>();
+            boolean replay = false;
+
+            try (HttpService.Response response = httpService.getResponse(url, conditionalHeaders(cached))) {
+                if (response.statusCode() == 304 && cached != null) {
+                    // Unchanged page: replay it from the snapshot instead of the wire
+                    next.copyPage(previous, cached);
+                    result = new ProductPage(cached.count(), cached.cursorPaged(), cached.nextCursor(), cached.last());
+                    replay = true;
+                    notModified++;
+                } else if (next == null) {
+                    result = readPage(response.body(), products::add);
+                } else {
+                    next.beginPage(url, response.header("ETag"), response.header("Last-Modified"));
+                    result = readPage(response.body(), product -> {
+                        try {
+                            next.write(product);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        products.add(product);
+                    });
+                    next.endPage(result.cursorPaged(), result.nextCursor(), result.last());
+                }
+            }
+
+            // The page is read to the end and the connection released before anything goes downstream,
+            // so a consumer blocked on a full pipeline queue cannot hold it open into an idle timeout
+            if (replay) {
+                previous.forEach(cached, product -> {
+                    next.observe(product);
+                    consumer.accept(product);
+                });
+            } else {
+                products.forEach(consumer);
+            }
+            total += result.count();
+
+            if (pageSize <= 0 || result.last() || result.count() == 0) {
+                break;
+            }
+            if (result.cursorPaged()) {
+                if (result.nextCursor() == null) {
+                    break;
+                }
+                cursor = result.nextCursor();
+            } else if (result.count() < pageSize) {
+                break;
+            }
+            page++;
+        }
+
+        if (notModified > 0) {
+            MetricsService.getInstance().increment("catalog_not_modified", notModified);
+            logger.info("{} of {} catalog page(s) unchanged, read from the local snapshot", notModified, page + 1);
         }
+        return total;
+    }
+
+    private long readIncremental(CatalogSnapshot previous, CatalogSnapshot.Writer next,
+                                 Consumer<Product> consumer) throws IOException {
+        Map<String, Product> changed = new LinkedHashMap<>();
+        readPages(previous.watermark().toString(), null, null, product -> changed.put(product.getId(), product));
+        logger.info("{} product(s) changed since {}", changed.size(), previous.watermark());
+
+        // The merged catalog no longer matches any page the API would serve, so it is kept as one
+        // page without validators
+        next.beginPage(null, null, null);
+        Consumer<Product> emit = product -> {
+            try {
+                next.write(product);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            consumer.accept(product);
+        };
+
+        long total = 0;
+        for (CatalogSnapshot.Page page : previous.pages()) {
+            total += previous.forEach(page, product -> {
+                Product update = changed.remove(product.getId());
+                emit.accept(update != null ? update : product);
+            });
+        }
+        for (Product added : changed.values()) {
+            emit.accept(added);
+            total++;
+        }
+        next.endPage(false, null, true);
+        return total;
+    }
+
+    private static Map<String, String> conditionalHeaders(CatalogSnapshot.Page cached) {
+        if (cached == null || (cached.etag() == null && cached.lastModified() == null)) {
+            return JSON_HEADERS;
+        }
+        Map<String, String> headers = new HashMap<>(JSON_HEADERS);
+        if (cached.etag() != null) {
+            headers.put("If-None-Match", cached.etag());
+        }
+        if (cached.lastModified() != null) {
+            headers.put("If-Modified-Since", cached.lastModified());
+        }
+        return headers;
+    }
+
+    private String buildProductsUrl(int page, String cursor, String updatedSince) {
+        String url = apiBaseUrl + "/api/products";
+        String filter = updatedSince == null
+                ? ""
+                : updatedSinceParam + "=" + URLEncoder.encode(updatedSince, StandardCharsets.UTF_8);
+        if (pageSize <= 0) {
+            return filter.isEmpty() ? url : url + "?" + filter;
+        }
+        if (!filter.isEmpty()) {
+            url = url + "?" + filter + "&size=" + pageSize;
+        } else {
+            url = url + "?size=" + pageSize;
+        }
+        if (cursor != null) {
+            return url + "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+        }
+        return url + "&page=" + page;
+    }
+
+    private ProductPage readPage(InputStream body, Consumer<Product> consumer) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                return new ProductPage(readProducts(parser, consumer), false, null, false);
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected products payload starting with " + token);
+            }
+
+            // Paged envelope, e.g. {"content": [...], "last": false} or {"items": [...], "nextCursor": "..."}
+            int count = 0;
+            boolean cursorPaged = false;
+            String nextCursor = null;
+            boolean last = false;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                switch (field) {
+                    case "content", "items", "data", "products" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            count += readProducts(parser, consumer);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    case "nextCursor" -> {
+                        cursorPaged = true;
+                        nextCursor = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    }
+                    case "last" -> last = value == JsonToken.VALUE_TRUE;
+                    default -> parser.skipChildren();
+                }
+            }
+
+            return new ProductPage(count, cursorPaged, nextCursor, last);
+        }
+    }
+
+    private int readProducts(JsonParser parser, Consumer<Product> consumer) throws IOException {
+        int count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            consumer.accept(objectMapper.readValue(parser, Product.class));
+            count++;
+        }
+        return count;
     }
 
     public String getProductLink(Product product) {
-        return product.getLink() + """
+        return getProductLink(product.getLink(), product.getSkuId());
+    }
+
+    public String getProductLink(String listingLink, String skuId) {
+        return listingLink + """
                 ?pdp_ext_f=%7B"sku_id":"
-                """ + product.getSkuId() + """
+                """ + skuId + """
                 "%7D
                 """;
     }
-} 
\ No newline at end of file
+
+    private record ProductPage(int count, boolean cursorPaged, String nextCursor, boolean last) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.reconnect.service;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Response;
+import com.microsoft.playwright.Route;
+import com.reconnect.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+public class RequestBlocker {
+    private final Set<String> blockedResourceTypes;
+    private final List<String> blockedUrlPatterns;
+    private final List<String> allowedUrlPatterns;
+    private final LoggingService logger;
+
+    private final Map<String, LongAdder> blockedRequestsByType = new ConcurrentHashMap<>();
+    private final AtomicLong allowedRequests = new AtomicLong();
+    private final AtomicLong allowedBytes = new AtomicLong();
+
+    public RequestBlocker(Set<String> blockedResourceTypes,
+                          List<String> blockedUrlPatterns,
+                          List<String> allowedUrlPatterns) {
+        this.logger = new LoggingService(RequestBlocker.class);
+        this.blockedResourceTypes = Set.copyOf(blockedResourceTypes);
+        this.blockedUrlPatterns = List.copyOf(blockedUrlPatterns);
+        this.allowedUrlPatterns = List.copyOf(allowedUrlPatterns);
+    }
+
+    public static RequestBlocker fromConfig() {
+        AppConfig config = AppConfig.getInstance();
+        if (!config.isRequestBlockingEnabled()) {
+            return null;
+        }
+        return new RequestBlocker(
+                Set.copyOf(config.getBlockedResourceTypes()),
+                config.getBlockedUrlPatterns(),
+                config.getAllowedUrlPatterns()
+        );
+    }
+
+    public void install(BrowserContext context) {
+        context.route("**/*", this::handle);
+        context.onResponse(this::recordResponse);
+    }
+
+    public boolean shouldBlock(String url, String resourceType) {
+        if (matchesAny(url, allowedUrlPatterns)) {
+            return false;
+        }
+        return blockedResourceTypes.contains(resourceType) || matchesAny(url, blockedUrlPatterns);
+    }
+
+    public long getBlockedRequests() {
+        return blockedRequestsByType.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long getAllowedRequests() {
+        return allowedRequests.get();
+    }
+
+    public long getAllowedBytes() {
+        return allowedBytes.get();
+    }
+
+    public void logSummaryAndReset() {
+        Map<String, Long> blockedByType = new TreeMap<>();
+        blockedRequestsByType.forEach((type, count) -> blockedByType.put(type, count.sumThenReset()));
+        long blocked = blockedByType.values().stream().mapToLong(Long::longValue).sum();
+
+        logger.info("Request blocking: {} blocked {}, {} allowed ({} KB transferred)",
+                blocked, blockedByType, allowedRequests.getAndSet(0), allowedBytes.getAndSet(0) / 1024);
+    }
+
+    private void handle(Route route) {
+        String url = route.request().url();
+        String resourceType = route.request().resourceType();
+
+        if (shouldBlock(url, resourceType)) {
+            blockedRequestsByType.computeIfAbsent(resourceType, type -> new LongAdder()).increment();
+            logger.debug("Blocked {} request: {}", resourceType, url);
+            route.abort();
+        } else {
+            allowedRequests.incrementAndGet();
+            route.resume();
+        }
+    }
+
+    private void recordResponse(Response response) {
+        // Provisional headers are available locally, without another protocol round trip
+        String contentLength = response.headers().get("content-length");
+        if (contentLength != null) {
+            try {
+                allowedBytes.addAndGet(Long.parseLong(contentLength.trim()));
+            } catch (NumberFormatException e) {
+                logger.debug("Ignoring invalid content-length {} for {}", contentLength, response.url());
+            }
+        }
+    }
+
+    private static boolean matchesAny(String url, List<String> patterns) {
+        for (String pattern : patterns) {
+            if (url.contains(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
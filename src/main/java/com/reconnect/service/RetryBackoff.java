@@ -0,0 +1,31 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RetryBackoff {
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public RetryBackoff() {
+        this(AppConfig.getInstance().getRetryBackoffBaseMillis(), AppConfig.getInstance().getRetryBackoffMaxMillis());
+    }
+
+    public RetryBackoff(long baseDelayMillis, long maxDelayMillis) {
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public long delayMillis(int attempt) {
+        // Full jitter: uniform between the base delay and the exponential ceiling
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 20));
+        return baseDelayMillis >= ceiling
+                ? ceiling
+                : ThreadLocalRandom.current().nextLong(baseDelayMillis, ceiling + 1);
+    }
+
+    public void sleep(int attempt) throws InterruptedException {
+        Thread.sleep(delayMillis(attempt));
+    }
+}
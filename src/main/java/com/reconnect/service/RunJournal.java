@@ -0,0 +1,210 @@
+package com.reconnect.service;
+
+import com.reconnect.domain.PriceUpdate;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+@Slf4j
+public class RunJournal implements AutoCloseable {
+    public enum Status {
+        SCRAPED, WRITTEN, SUPPRESSED, WRITE_FAILED, FAILED
+    }
+
+    private static final int MAX_REASON_LENGTH = 500;
+    private static final int MAX_RECORD_BYTES = 256 * 1024;
+
+    private final Path file;
+    private final long fsyncIntervalMillis;
+    private final Map<String, Entry> replayed = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<Entry> pending = new LinkedBlockingQueue<>();
+    private final FileChannel channel;
+    private final Thread writer;
+    private final LoggingService logger;
+    private volatile boolean closed;
+
+    public RunJournal(Path file, long fsyncIntervalMillis) {
+        this.logger = new LoggingService(RunJournal.class);
+        this.file = file;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+
+        try {
+            long validLength = replay();
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Cut off a torn tail so records appended by this run stay readable
+            channel.truncate(validLength);
+            channel.position(validLength);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open run journal " + file, e);
+        }
+
+        this.writer = new Thread(this::writeLoop, "run-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public boolean isDone(String productId) {
+        // Completed products are skipped; scraped-but-unwritten ones come back through pendingWrites,
+        // and failed ones are simply tried again
+        Entry entry = replayed.get(productId);
+        return entry != null && entry.status() != Status.FAILED;
+    }
+
+    public List<PriceUpdate> pendingWrites() {
+        return replayed.values().stream()
+                .filter(entry -> entry.status() == Status.SCRAPED || entry.status() == Status.WRITE_FAILED)
+                .map(entry -> new PriceUpdate(entry.productId(), entry.productLink(), entry.priceInCents()))
+                .toList();
+    }
+
+    public int replayedCount() {
+        return replayed.size();
+    }
+
+    public long failedCount() {
+        return replayed.values().stream().filter(entry -> entry.status() == Status.FAILED).count();
+    }
+
+    public void record(String productId, String productLink, long priceInCents, Status status, String reason) {
+        // Only enqueues; the writer thread batches records and fsyncs off the scraping path
+        String trimmedReason = reason == null ? "" : reason.substring(0, Math.min(reason.length(), MAX_REASON_LENGTH));
+        pending.add(new Entry(productId, productLink == null ? "" : productLink, priceInCents, status, trimmedReason));
+    }
+
+    public void record(PriceUpdate update, Status status, String reason) {
+        record(update.productId(), update.productLink(), update.priceInCents(), status, reason);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        writer.join();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error closing run journal: {}", e.getMessage());
+        }
+    }
+
+    public void closeAndDelete() throws InterruptedException {
+        close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.error("Failed to delete completed run journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+
+        while (!closed || !pending.isEmpty()) {
+            try {
+                Entry first = pending.poll(fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch);
+
+                ByteBuffer buffer = ByteBuffer.wrap(encode(batch));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                logger.error("Failed to write {} journal record(s): {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static byte[] encode(List<Entry> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        CRC32 crc = new CRC32();
+
+        for (Entry entry : batch) {
+            recordBytes.reset();
+            record.writeByte(entry.status().ordinal());
+            record.writeUTF(entry.productId());
+            record.writeUTF(entry.productLink());
+            record.writeLong(entry.priceInCents());
+            record.writeUTF(entry.reason());
+
+            crc.reset();
+            crc.update(recordBytes.toByteArray());
+            out.writeInt(recordBytes.size());
+            out.writeInt((int) crc.getValue());
+            recordBytes.writeTo(out);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private long replay() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        long records = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    logger.info("Ignoring torn journal record after {} records", records);
+                    break;
+                }
+                byte[] payload = in.readNBytes(length);
+
+                crc.reset();
+                crc.update(payload);
+                if (payload.length != length || (int) crc.getValue() != checksum) {
+                    logger.info("Ignoring torn journal record after {} records", records);
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                Status status = Status.values()[record.readUnsignedByte()];
+                Entry entry = new Entry(record.readUTF(), record.readUTF(), record.readLong(), status, record.readUTF());
+                replayed.put(entry.productId(), entry);
+                records++;
+                validLength += 8 + length;
+            }
+        } catch (EOFException e) {
+            // Clean end of journal, or a record header cut short by a crash
+        }
+
+        logger.info("Replayed {} journal records for {} products from an unfinished run", records, replayed.size());
+        return validLength;
+    }
+
+    private record Entry(String productId, String productLink, long priceInCents, Status status, String reason) {
+    }
+}
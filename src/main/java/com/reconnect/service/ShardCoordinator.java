@@ -0,0 +1,193 @@
+package com.reconnect.service;
+
+import com.reconnect.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the catalog between workers that share a lease directory. Each worker keeps a lease file
+ * fresh; every live lease puts that worker on a consistent hash ring, and a product belongs to the
+ * worker that follows its id on the ring.
+ */
+@Slf4j
+public class ShardCoordinator implements AutoCloseable {
+    private static final String LEASE_SUFFIX = ".lease";
+
+    private final Path directory;
+    private final String workerId;
+    private final Path leaseFile;
+    private final long leaseMillis;
+    private final int virtualNodes;
+    private final ScheduledExecutorService heartbeat;
+    private final LoggingService logger;
+
+    private volatile Ring ring;
+
+    public ShardCoordinator(Path directory, String workerId, long leaseSeconds, int virtualNodes) {
+        this.logger = new LoggingService(ShardCoordinator.class);
+        this.directory = directory;
+        this.workerId = workerId;
+        this.leaseFile = directory.resolve(workerId + LEASE_SUFFIX);
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(leaseSeconds);
+        this.virtualNodes = virtualNodes;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create shard directory " + directory, e);
+        }
+        this.ring = new Ring(Set.of(workerId), 0, virtualNodes);
+        renewAndRefresh();
+
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Renew well inside the lease so one slow tick does not make peers drop us
+        long period = Math.max(1000, leaseMillis / 3);
+        heartbeat.scheduleAtFixedRate(this::renewAndRefresh, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public static ShardCoordinator fromConfig() {
+        AppConfig config = AppConfig.getInstance();
+        if (!config.isShardEnabled()) {
+            return null;
+        }
+
+        String workerId = config.getShardWorkerId().isEmpty()
+                ? ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9._-]", "-")
+                : config.getShardWorkerId();
+        return new ShardCoordinator(
+                Path.of(config.getShardDirectory()),
+                workerId,
+                config.getShardLeaseSeconds(),
+                config.getShardVirtualNodes()
+        );
+    }
+
+    public boolean owns(String productId) {
+        return workerId.equals(ring.ownerOf(productId));
+    }
+
+    public long membershipVersion() {
+        return ring.version();
+    }
+
+    public int memberCount() {
+        return ring.members().size();
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public synchronized void renewAndRefresh() {
+        try {
+            if (Files.exists(leaseFile)) {
+                Files.setLastModifiedTime(leaseFile, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.writeString(leaseFile, workerId, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to renew shard lease {}: {}", leaseFile, e.getMessage());
+        }
+
+        Set<String> members = liveMembers();
+        members.add(workerId);
+        if (!members.equals(ring.members())) {
+            ring = new Ring(members, ring.version() + 1, virtualNodes);
+            logger.info("Shard membership changed: {} worker(s) {}, this worker is {}",
+                    members.size(), members, workerId);
+        }
+    }
+
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+        try {
+            // Leaving explicitly lets peers take over now instead of after the lease runs out
+            Files.deleteIfExists(leaseFile);
+        } catch (IOException e) {
+            logger.error("Failed to release shard lease {}: {}", leaseFile, e.getMessage());
+        }
+    }
+
+    private Set<String> liveMembers() {
+        Set<String> members = new TreeSet<>();
+        long now = System.currentTimeMillis();
+
+        try (DirectoryStream<Path> leases = Files.newDirectoryStream(directory, "*" + LEASE_SUFFIX)) {
+            for (Path lease : leases) {
+                String member = lease.getFileName().toString();
+                member = member.substring(0, member.length() - LEASE_SUFFIX.length());
+                try {
+                    long age = now - Files.getLastModifiedTime(lease).toMillis();
+                    if (age <= leaseMillis) {
+                        members.add(member);
+                    } else if (age > leaseMillis * 10) {
+                        Files.deleteIfExists(lease);
+                    }
+                } catch (IOException e) {
+                    // Another worker removed its lease between listing and reading it
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to list shard leases in {}: {}", directory, e.getMessage());
+            return new TreeSet<>(ring.members());
+        }
+
+        return members;
+    }
+
+    static long hash(String key) {
+        // FNV-1a followed by a murmur3 finalizer, so similar ids still spread around the ring
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private record Ring(Set<String> members, long version, NavigableMap<Long, String> nodes) {
+        Ring(Set<String> members, long version, int virtualNodes) {
+            this(Set.copyOf(members), version, buildNodes(members, virtualNodes));
+        }
+
+        String ownerOf(String key) {
+            Map.Entry<Long, String> owner = nodes.ceilingEntry(hash(key));
+            return owner != null ? owner.getValue() : nodes.firstEntry().getValue();
+        }
+
+        private static NavigableMap<Long, String> buildNodes(Set<String> members, int virtualNodes) {
+            NavigableMap<Long, String> nodes = new TreeMap<>();
+            for (String member : members) {
+                for (int i = 0; i < virtualNodes; i++) {
+                    nodes.put(hash(member + "#" + i), member);
+                }
+            }
+            return nodes;
+        }
+    }
+}
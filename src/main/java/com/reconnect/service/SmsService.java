@@ -3,13 +3,56 @@ package com.reconnect.service;
 import com.reconnect.config.AppConfig;
 import com.vonage.client.VonageClient;
 import com.vonage.client.sms.messages.TextMessage;
+import lombok.extern.slf4j.Slf4j;
 
-public class SmsService {
-    public static void sendSms(String phoneNumber, String text) {
-        String vonageApiKey = AppConfig.getInstance().getVonageApiKey();
-        String vonageApiSecret = AppConfig.getInstance().getVonageApiSecret();
-        VonageClient client = VonageClient.builder().apiKey(vonageApiKey).apiSecret(vonageApiSecret).build();
+import java.util.ArrayList;
+import java.util.List;
 
+@Slf4j
+public class SmsService implements AlertSink {
+    private final VonageClient client;
+    private final List<String> recipients;
+    private final LoggingService logger;
+
+    public SmsService(String apiKey, String apiSecret, List<String> recipients) {
+        this.logger = new LoggingService(SmsService.class);
+        this.client = VonageClient.builder().apiKey(apiKey).apiSecret(apiSecret).build();
+        this.recipients = List.copyOf(recipients);
+    }
+
+    public static SmsService fromConfig() {
+        AppConfig config = AppConfig.getInstance();
+        return new SmsService(
+                config.getVonageApiKey(),
+                config.getVonageApiSecret(),
+                config.getAlertSmsRecipients()
+        );
+    }
+
+    @Override
+    public List<String> send(String message, List<String> only) {
+        List<String> targets = only == null ? recipients : only;
+        List<String> failed = new ArrayList<>();
+        RuntimeException firstFailure = null;
+        for (String recipient : targets) {
+            try {
+                sendSms(recipient, message);
+            } catch (RuntimeException e) {
+                logger.error("Failed to send SMS to {}: {}", recipient, e.getMessage());
+                failed.add(recipient);
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+            }
+        }
+        // A partial failure is returned, not thrown, so a retry does not text the others twice
+        if (firstFailure != null && failed.size() == targets.size()) {
+            throw firstFailure;
+        }
+        return failed;
+    }
+
+    public void sendSms(String phoneNumber, String text) {
         TextMessage message = new TextMessage("PriceUpdater",
                 phoneNumber,
                 text
@@ -0,0 +1,71 @@
+package com.reconnect.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded hand-off between two pipeline stages. A full queue blocks the producer, and the time
+ * spent blocked is recorded as {@code backpressure_<name>}, so the stage that holds up the run
+ * shows up in the metrics. The producer calls {@link #close} once it is done, and consumers drain
+ * whatever is left before {@link #take} returns null.
+ */
+class StageQueue<T> {
+    private static final long CLOSE_CHECK_MILLIS = 200;
+
+    private final String name;
+    private final int capacity;
+    private final BlockingQueue<T> queue;
+    private final AtomicInteger peakDepth = new AtomicInteger();
+    private final MetricsService metrics;
+    private volatile boolean closed;
+
+    StageQueue(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.metrics = MetricsService.getInstance();
+        metrics.queueDepth(name, queue::size);
+    }
+
+    void put(T item) throws InterruptedException {
+        if (!queue.offer(item)) {
+            try (MetricsService.Span span = metrics.span("backpressure_" + name)) {
+                queue.put(item);
+            }
+        }
+        peakDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    /**
+     * Next item, or null once the producer has closed the queue and it is empty.
+     */
+    T take() throws InterruptedException {
+        while (true) {
+            T item = queue.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+            if (closed && queue.isEmpty()) {
+                return null;
+            }
+        }
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getPeakDepth() {
+        return peakDepth.get();
+    }
+}
@@ -0,0 +1,61 @@
+package com.reconnect.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reconnect.domain.Product;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+final class Fixtures {
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private Fixtures() {
+    }
+
+    static String text(String name) {
+        return new String(bytes(name), StandardCharsets.UTF_8);
+    }
+
+    static List<String> lines(String name) {
+        return text(name).lines().filter(line -> !line.isBlank()).toList();
+    }
+
+    static List<Product> products(int count) {
+        try {
+            List<Product> samples = OBJECT_MAPPER.readValue(bytes("products.json"), new TypeReference<List<Product>>() {});
+            List<Product> products = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Product sample = samples.get(i % samples.size());
+                Product product = new Product();
+                product.setUuid(sample.getUuid());
+                product.setId(String.valueOf(100_000 + i));
+                product.setLink(sample.getLink());
+                product.setPrice(sample.getPrice());
+                product.setSkuId(sample.getSkuId());
+                product.setCreatedAt(sample.getCreatedAt());
+                product.setUpdatedAt(sample.getUpdatedAt());
+                products.add(product);
+            }
+            return products;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] bytes(String name) {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream("fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing benchmark fixture " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
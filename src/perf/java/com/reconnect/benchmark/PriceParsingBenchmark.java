@@ -0,0 +1,76 @@
+package com.reconnect.benchmark;
+
+import com.reconnect.service.EmbeddedPriceExtractor;
+import com.reconnect.service.HttpService;
+import com.reconnect.service.PriceTextParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(3)
+public class PriceParsingBenchmark {
+    private static final String LAST_SKU_ID = "12000036123450004";
+    private static final Pattern REGEX_PRICE_PATTERN = Pattern.compile("\\d+[.,]\\d+");
+
+    private List<String> priceTexts;
+    private PriceTextParser priceTextParser;
+    private String productPage;
+    private EmbeddedPriceExtractor embeddedPriceExtractor;
+
+    @Setup
+    public void setUp() {
+        priceTexts = Fixtures.lines("price-texts.txt");
+        priceTextParser = new PriceTextParser(Locale.forLanguageTag("pt-BR"), 1, 10_000_000);
+        productPage = Fixtures.text("product-page.html");
+        embeddedPriceExtractor = new EmbeddedPriceExtractor(new HttpService());
+    }
+
+    @Benchmark
+    public void parseCents(Blackhole blackhole) {
+        for (String priceText : priceTexts) {
+            blackhole.consume(priceTextParser.parseCents(priceText));
+        }
+    }
+
+    @Benchmark
+    public void regexBaseline(Blackhole blackhole) {
+        // The matcher + BigDecimal path parseCents replaced, kept for comparison
+        for (String priceText : priceTexts) {
+            Matcher matcher = REGEX_PRICE_PATTERN.matcher(priceText);
+            if (matcher.find()) {
+                blackhole.consume(new BigDecimal(matcher.group().replace(",", ".")).multiply(BigDecimal.valueOf(100)).longValue());
+            }
+        }
+    }
+
+    @Benchmark
+    public Object extractEmbeddedPrice() {
+        return embeddedPriceExtractor.extractPrice(productPage, LAST_SKU_ID);
+    }
+
+    @Benchmark
+    public Object extractEmbeddedPrices() {
+        // Every SKU on the listing in one pass, as the pipeline does once per listing
+        return embeddedPriceExtractor.extractPrices(productPage);
+    }
+}
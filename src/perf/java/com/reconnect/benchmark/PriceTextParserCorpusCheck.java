@@ -0,0 +1,92 @@
+package com.reconnect.benchmark;
+
+import com.reconnect.service.PriceTextParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Replays fixtures/price-corpus.tsv against {@link PriceTextParser} and then mutates the corpus at
+ * random, checking that nothing throws and every result is either NOT_FOUND or inside the range.
+ * Exits non-zero on the first violation.
+ *
+ * <pre>
+ * java -cp target/*-jar-with-dependencies.jar com.reconnect.benchmark.PriceTextParserCorpusCheck [iterations] [seed]
+ * </pre>
+ */
+@Slf4j
+public class PriceTextParserCorpusCheck {
+    private static final long MIN_CENTS = 1;
+    private static final long MAX_CENTS = 10_000_000;
+    private static final String ALPHABET = "0123456789.,  R$€US%- abc";
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+
+        PriceTextParser parser = new PriceTextParser(Locale.forLanguageTag("pt-BR"), MIN_CENTS, MAX_CENTS);
+        List<String[]> corpus = Fixtures.lines("price-corpus.tsv").stream()
+                .filter(line -> !line.startsWith("#"))
+                .map(line -> line.split("\t", 2))
+                .toList();
+
+        int mismatches = 0;
+        for (String[] entry : corpus) {
+            long expected = Long.parseLong(entry[1].trim());
+            long actual = parser.parseCents(entry[0]);
+            if (actual != expected) {
+                log.error("Corpus mismatch for \"{}\": expected {}, got {}", entry[0], expected, actual);
+                mismatches++;
+            }
+        }
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+        log.info("{} corpus entries parsed as expected", corpus.size());
+
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < iterations; i++) {
+            text.setLength(0);
+            text.append(corpus.get(random.nextInt(corpus.size()))[0]);
+            mutate(text, random);
+
+            long cents;
+            try {
+                cents = parser.parseCents(text);
+            } catch (RuntimeException e) {
+                log.error("Parser threw on \"{}\" (seed {})", text, seed, e);
+                System.exit(1);
+                return;
+            }
+            if (cents != PriceTextParser.NOT_FOUND && (cents < MIN_CENTS || cents > MAX_CENTS)) {
+                log.error("Out of range result {} for \"{}\" (seed {})", cents, text, seed);
+                System.exit(1);
+            }
+        }
+        log.info("{} mutated inputs parsed without violations (seed {})", iterations, seed);
+    }
+
+    private static void mutate(StringBuilder text, Random random) {
+        int mutations = 1 + random.nextInt(4);
+        for (int m = 0; m < mutations; m++) {
+            int position = text.isEmpty() ? 0 : random.nextInt(text.length());
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (random.nextInt(3)) {
+                case 0 -> text.insert(position, c);
+                case 1 -> {
+                    if (!text.isEmpty()) {
+                        text.deleteCharAt(position);
+                    }
+                }
+                default -> {
+                    if (!text.isEmpty()) {
+                        text.setCharAt(position, c);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.reconnect.benchmark;
+
+import com.reconnect.domain.Product;
+import com.reconnect.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(3)
+public class ProductLinkBenchmark {
+    private ProductService productService;
+    private List<Product> products;
+
+    @Setup
+    public void setUp() {
+        productService = new ProductService();
+        products = Fixtures.products(50);
+    }
+
+    @Benchmark
+    public void getProductLink(Blackhole blackhole) {
+        for (Product product : products) {
+            blackhole.consume(productService.getProductLink(product));
+        }
+    }
+}
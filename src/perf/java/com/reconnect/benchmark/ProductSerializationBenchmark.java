@@ -0,0 +1,57 @@
+package com.reconnect.benchmark;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.reconnect.domain.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(3)
+public class ProductSerializationBenchmark {
+    @Param({"1000", "10000"})
+    private int productCount;
+
+    private byte[] productsPayload;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        List<Product> products = Fixtures.products(productCount);
+        productsPayload = Fixtures.OBJECT_MAPPER.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public List<Product> deserializeProductList() throws IOException {
+        return Fixtures.OBJECT_MAPPER.readValue(productsPayload, new TypeReference<List<Product>>() {});
+    }
+
+    @Benchmark
+    public void deserializeProductStream(Blackhole blackhole) throws IOException {
+        try (JsonParser parser = Fixtures.OBJECT_MAPPER.createParser(productsPayload)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                blackhole.consume(Fixtures.OBJECT_MAPPER.readValue(parser, Product.class));
+            }
+        }
+    }
+}
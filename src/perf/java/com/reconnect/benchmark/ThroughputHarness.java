@@ -0,0 +1,289 @@
+package com.reconnect.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.reconnect.Main;
+import com.reconnect.service.LatencyHistogram;
+import com.reconnect.service.MetricsService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the whole price update pipeline against an in-process stub of the product API that also
+ * serves the recorded product page fixture, so nothing leaves the machine.
+ *
+ * <pre>
+ * java -cp target/*-jar-with-dependencies.jar \
+ *     -Dharness.products=2000 -Dharness.page.latency.ms=300 -Dharness.page.failure.rate=0.05 \
+ *     -Dscraper.concurrency=4 com.reconnect.benchmark.ThroughputHarness
+ * </pre>
+ *
+ * Any application property can be overridden the same way; the defaults below only switch off
+ * what would skew the measurement (result cache, production rate limits, long timeouts).
+ */
+@Slf4j
+public class ThroughputHarness {
+    private static final String[] SKU_IDS = {
+            "12000036123450001", "12000036123450002", "12000036123450003", "12000036123450004"
+    };
+    private static final long STUB_PRICE_CENTS = 1000;
+
+    private final int productCount;
+    private final long pageLatencyMillis;
+    private final double pageFailureRate;
+    private final long apiLatencyMillis;
+    private final double apiFailureRate;
+    private final byte[] productPage;
+
+    private final AtomicLong pagesServed = new AtomicLong();
+    private final AtomicLong pageFailures = new AtomicLong();
+    private final AtomicLong writeRequests = new AtomicLong();
+    private final AtomicLong pricesWritten = new AtomicLong();
+    private final AtomicLong apiFailures = new AtomicLong();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+
+    private HttpServer server;
+    private String baseUrl;
+
+    public ThroughputHarness() {
+        this.productCount = Integer.getInteger("harness.products", 500);
+        this.pageLatencyMillis = Long.getLong("harness.page.latency.ms", 150);
+        this.pageFailureRate = Double.parseDouble(System.getProperty("harness.page.failure.rate", "0"));
+        this.apiLatencyMillis = Long.getLong("harness.api.latency.ms", 20);
+        this.apiFailureRate = Double.parseDouble(System.getProperty("harness.api.failure.rate", "0"));
+        this.productPage = Fixtures.text("product-page.html").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ThroughputHarness().run();
+    }
+
+    public void run() throws Exception {
+        startStub();
+        configurePipeline();
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(this::sampleHeap, 0, 200, TimeUnit.MILLISECONDS);
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+
+        long start = System.nanoTime();
+        try {
+            Main.main(new String[0]);
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            sampler.shutdownNow();
+            sampleHeap();
+            server.stop(0);
+
+            report(elapsedNanos, gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+        }
+    }
+
+    private void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/products", this::handleApi);
+        server.createContext("/item/", this::handlePage);
+        server.start();
+
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        log.info("Stub API and product pages on {} ({} products)", baseUrl, productCount);
+    }
+
+    private void configurePipeline() throws IOException {
+        Path stateDir = Files.createTempDirectory("price-harness");
+
+        System.setProperty("api.base.url", baseUrl);
+        System.setProperty("daemon.enabled", "false");
+        System.setProperty("alert.sink", "log");
+        System.setProperty("journal.file", stateDir.resolve("run-journal.log").toString());
+        System.setProperty("price.history.dir", stateDir.resolve("price-history").toString());
+        System.setProperty("price.cache.file", stateDir.resolve("price-cache.log").toString());
+        System.setProperty("catalog.snapshot.file", stateDir.resolve("catalog-snapshot.bin").toString());
+
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("price.cache.enabled", "false");
+        defaults.put("ratelimit.initial.per.minute", "600000");
+        defaults.put("ratelimit.max.per.minute", "600000");
+        defaults.put("retry.backoff.base.ms", "100");
+        defaults.put("retry.backoff.max.ms", "1000");
+        defaults.put("scraper.human.pause.ms", "0");
+        defaults.put("scraper.price.wait.timeout.ms", "2000");
+        defaults.forEach((key, value) -> {
+            if (System.getProperty(key) == null) {
+                System.setProperty(key, value);
+            }
+        });
+    }
+
+    private void handleApi(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            pause(apiLatencyMillis);
+            if (shouldFail(apiFailureRate)) {
+                apiFailures.incrementAndGet();
+                respond(exchange, 500, "text/plain", "injected failure".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> respond(exchange, 200, "application/json", productsPayload(exchange));
+                case "PUT" -> {
+                    JsonNode body = Fixtures.OBJECT_MAPPER.readTree(exchange.getRequestBody());
+                    writeRequests.incrementAndGet();
+                    pricesWritten.addAndGet(body.isArray() ? body.size() : 1);
+                    respond(exchange, 200, "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+                }
+                default -> respond(exchange, 405, "text/plain", new byte[0]);
+            }
+        }
+    }
+
+    private void handlePage(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            pause(pageLatencyMillis);
+            pagesServed.incrementAndGet();
+            if (shouldFail(pageFailureRate)) {
+                pageFailures.incrementAndGet();
+                respond(exchange, 503, "text/html", "<html><body>Service Unavailable</body></html>"
+                        .getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            respond(exchange, 200, "text/html; charset=utf-8", productPage);
+        }
+    }
+
+    private byte[] productsPayload(HttpExchange exchange) throws IOException {
+        Map<String, String> query = new LinkedHashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                String[] parts = pair.split("=", 2);
+                query.put(parts[0], parts.length > 1 ? parts[1] : "");
+            }
+        }
+
+        if (!query.containsKey("size")) {
+            return Fixtures.OBJECT_MAPPER.writeValueAsBytes(products(0, productCount));
+        }
+
+        int size = Integer.parseInt(query.get("size"));
+        int page = Integer.parseInt(query.getOrDefault("page", "0"));
+        int from = Math.min(page * size, productCount);
+        int to = Math.min(from + size, productCount);
+        return Fixtures.OBJECT_MAPPER.writeValueAsBytes(Map.of(
+                "content", products(from, to),
+                "last", to >= productCount
+        ));
+    }
+
+    private List<Map<String, Object>> products(int from, int to) {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Map<String, Object>> products = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            String updatedAt = now.minusHours(1 + i % 72).toString();
+            products.add(Map.of(
+                    "uuid", "00000000-0000-4000-8000-" + String.format("%012d", i),
+                    "id", String.valueOf(i + 1),
+                    "link", baseUrl + "/item/" + (1005006000000000L + i) + ".html",
+                    "price", STUB_PRICE_CENTS,
+                    "skuId", SKU_IDS[i % SKU_IDS.length],
+                    "createdAt", updatedAt,
+                    "updatedAt", updatedAt
+            ));
+        }
+        return products;
+    }
+
+    private void report(long elapsedNanos, long gcCount, long gcMillis) {
+        double minutes = elapsedNanos / 60_000_000_000.0;
+
+        log.info("===== Throughput harness =====");
+        log.info("Products: {} in {} s ({} products/min)",
+                productCount, String.format("%.1f", minutes * 60), String.format("%.1f", productCount / minutes));
+        log.info("Pages served: {} ({} injected failures)", pagesServed.get(), pageFailures.get());
+        log.info("Prices written: {} in {} request(s) ({} injected API failures)",
+                pricesWritten.get(), writeRequests.get(), apiFailures.get());
+
+        MetricsService.getInstance().getStages().forEach((stage, histogram) -> logStage(stage, histogram));
+
+        log.info("Peak heap used: {} MB, GC: {} collection(s) in {} ms, peak threads: {}",
+                peakHeapBytes.get() / (1024 * 1024), gcCount, gcMillis,
+                ManagementFactory.getThreadMXBean().getPeakThreadCount());
+    }
+
+    private static void logStage(String stage, LatencyHistogram histogram) {
+        log.info("Stage {}: count={} p50={}ms p95={}ms p99={}ms max={}ms",
+                stage,
+                histogram.getCount(),
+                histogram.percentileMicros(0.5) / 1000,
+                histogram.percentileMicros(0.95) / 1000,
+                histogram.percentileMicros(0.99) / 1000,
+                histogram.getMaxMicros() / 1000);
+    }
+
+    private void sampleHeap() {
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        peakHeapBytes.accumulateAndGet(used, Math::max);
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .filter(count -> count > 0)
+                .sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .filter(millis -> millis > 0)
+                .sum();
+    }
+
+    private static boolean shouldFail(double rate) {
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            // +-50% jitter so requests do not complete in lockstep
+            Thread.sleep(millis / 2 + ThreadLocalRandom.current().nextLong(millis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
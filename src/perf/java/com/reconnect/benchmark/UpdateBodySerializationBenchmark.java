@@ -0,0 +1,65 @@
+package com.reconnect.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.reconnect.domain.PriceUpdate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request bodies of the price write-back, sized like the batches PriceUpdateBuffer flushes
+ * (api.write.batch.size, 50 by default).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(3)
+public class UpdateBodySerializationBenchmark {
+    @Param({"50"})
+    private int batchSize;
+
+    private PriceUpdate update;
+    private List<PriceUpdate> updates;
+
+    @Setup
+    public void setUp() {
+        updates = Fixtures.products(batchSize).stream()
+                .map(product -> new PriceUpdate(product.getId(), product.getLink(), product.getPrice().longValue()))
+                .toList();
+        update = updates.get(0);
+    }
+
+    @Benchmark
+    public String serializeUpdateBody() throws JsonProcessingException {
+        return Fixtures.OBJECT_MAPPER.writeValueAsString(Map.of(
+                "id", update.productId(),
+                "link", update.productLink(),
+                "price", update.priceInCents()
+        ));
+    }
+
+    @Benchmark
+    public String serializeBulkUpdateBody() throws JsonProcessingException {
+        return Fixtures.OBJECT_MAPPER.writeValueAsString(updates.stream()
+                .map(update -> Map.<String, Object>of(
+                        "id", update.productId(),
+                        "link", update.productLink(),
+                        "price", update.priceInCents()
+                ))
+                .toList());
+    }
+}